@@ -0,0 +1,32 @@
+package org.plema;
+
+public enum ExecutionMode {
+    INTERPRETED("interpreted"),
+    SWITCH("switch"),
+    GREEN("green"),
+    TIERED("tiered"),
+    CLOSURES("closures"),
+    JAVA("java");
+
+    private final String name;
+
+    ExecutionMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static ExecutionMode fromName(String name) {
+        if (name == null) {
+            return INTERPRETED;
+        }
+        for (ExecutionMode mode : values()) {
+            if (mode.name.equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution mode: " + name);
+    }
+}
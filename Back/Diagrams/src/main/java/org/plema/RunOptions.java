@@ -0,0 +1,4 @@
+package org.plema;
+
+public record RunOptions(ExecutionMode mode, Long seed, boolean profile) {
+}
@@ -0,0 +1,21 @@
+package org.plema.compiler;
+
+import java.util.Map;
+
+public class CompiledClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classes;
+
+    public CompiledClassLoader(Map<String, byte[]> classes) {
+        super("diagram", ClassLoader.getPlatformClassLoader());
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
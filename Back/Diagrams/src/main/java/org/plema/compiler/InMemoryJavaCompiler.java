@@ -0,0 +1,97 @@
+package org.plema.compiler;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.*;
+
+public class InMemoryJavaCompiler {
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    public Map<String, byte[]> compile(Map<String, String> sources) {
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available in this runtime");
+        }
+
+        List<JavaFileObject> units = new ArrayList<>();
+        sources.forEach((className, source) -> units.add(new SourceFile(className, source)));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = new HashMap<>();
+
+        try (ClassFileManager fileManager = new ClassFileManager(
+                compiler.getStandardFileManager(diagnostics, null, null), classes)) {
+            boolean success = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-proc:none", "-g:none"), null, units).call();
+
+            if (!success) {
+                StringBuilder message = new StringBuilder("Compilation failed:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                        message.append("\n").append(diagnostic.getMessage(Locale.ROOT));
+                    }
+                }
+                throw new IllegalArgumentException(message.toString());
+            }
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Failed to compile generated code", e);
+        }
+
+        return classes;
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        ClassFile(String className, Map<String, byte[]> classes) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    classes.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        ClassFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassFile(className, classes);
+        }
+    }
+}
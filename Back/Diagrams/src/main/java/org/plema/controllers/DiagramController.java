@@ -1,32 +1,159 @@
 package org.plema.controllers;
 
+import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
-import org.plema.dtos.CodeResponse;
+import org.plema.ExecutionMode;
+import org.plema.RunOptions;
+import org.plema.dtos.DiagramHandle;
 import org.plema.dtos.MessageResponse;
+import org.plema.dtos.ProfileResponse;
 import org.plema.models.Diagram;
+import org.plema.models.StoredDiagram;
+import org.plema.services.CodeCache;
+import org.plema.services.DiagramStore;
 import org.plema.services.GenerateCodeService;
 import org.plema.services.RunDiagramService;
+import org.plema.vertx.CodeResponseStream;
+import org.plema.visitor.runner.BlockProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public class DiagramController {
 
     private final GenerateCodeService generateCodeService = new GenerateCodeService();
     private final RunDiagramService runDiagramService;
+    private final CodeCache codeCache;
+    private final DiagramStore diagramStore;
 
-    public DiagramController(Vertx vertx) {
+    public DiagramController(Vertx vertx, CodeCache codeCache, DiagramStore diagramStore) {
         this.runDiagramService = new RunDiagramService(vertx);
+        this.codeCache = codeCache;
+        this.diagramStore = diagramStore;
     }
 
     public void generateCode(RoutingContext context) {
+        CodeResponseStream stream = new CodeResponseStream(context.response(), "Code generated");
         try {
             Diagram diagram = context.get("convertedData");
-            String code = generateCodeService.generateCode(diagram);
+            String codeCacheKey = context.get("codeCacheKey");
+            CodeCache.PendingEntry entry = codeCacheKey == null ? null : codeCache.begin(codeCacheKey);
+            Context eventLoop = context.vertx().getOrCreateContext();
+            Executor outputExecutor = command -> eventLoop.runOnContext(v -> command.run());
+            generateCodeService.generateCode(diagram, entry == null ? stream : stream.andThen(entry), outputExecutor)
+                    .whenCompleteAsync((result, throwable) -> {
+                        if (throwable == null) {
+                            if (entry != null) {
+                                entry.commit();
+                            }
+                            stream.end();
+                        } else {
+                            failGenerateCode(context, stream,
+                                    throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                        }
+                    }, outputExecutor);
+        } catch (Exception e) {
+            failGenerateCode(context, stream, e);
+        }
+    }
+
+    private static void failGenerateCode(RoutingContext context, CodeResponseStream stream, Throwable throwable) {
+        throwable.printStackTrace();
+        if (stream.isStarted()) {
+            context.response().reset();
+            return;
+        }
+        if (throwable instanceof IllegalArgumentException) {
             context.response()
-                    .setStatusCode(201)
+                    .setStatusCode(400)
                     .putHeader("Content-Type", "application/json")
-                    .end(JsonObject.mapFrom(new CodeResponse("Code generated", code)).encode());
-        } catch (IllegalArgumentException e) {
+                    .end(JsonObject.mapFrom(new MessageResponse(throwable.getMessage())).encode());
+            return;
+        }
+        context.response()
+                .setStatusCode(500)
+                .putHeader("Content-Type", "application/json")
+                .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+    }
+
+    public void storeDiagram(RoutingContext context) {
+        Diagram diagram = context.get("convertedData");
+        diagramStore.create(diagram)
+                .onSuccess(stored -> context.response()
+                        .setStatusCode(201)
+                        .putHeader("Content-Type", "application/json")
+                        .end(JsonObject.mapFrom(new DiagramHandle(stored.id(), stored.version())).encode()))
+                .onFailure(throwable -> {
+                    throwable.printStackTrace();
+                    context.response()
+                            .setStatusCode(500)
+                            .putHeader("Content-Type", "application/json")
+                            .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+                });
+    }
+
+    public void getDiagram(RoutingContext context) {
+        String id = context.pathParam("id");
+        StoredDiagram stored = diagramStore.get(id);
+        if (stored == null) {
+            context.response()
+                    .setStatusCode(404)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse("Diagram " + id + " not found")).encode());
+            return;
+        }
+        context.response()
+                .setStatusCode(200)
+                .putHeader("Content-Type", "application/json")
+                .end(diagramStore.toJson(stored));
+    }
+
+    public void patchDiagram(RoutingContext context) {
+        try {
+            String id = context.pathParam("id");
+            JsonObject body = context.body().asJsonObject();
+            JsonArray operations = body == null ? null : body.getJsonArray("operations");
+            if (operations == null) {
+                throw new IllegalArgumentException("operations is required");
+            }
+
+            diagramStore.patch(id, body.getInteger("version"), operations)
+                    .onSuccess(stored -> context.response()
+                            .setStatusCode(200)
+                            .putHeader("Content-Type", "application/json")
+                            .end(JsonObject.mapFrom(new DiagramHandle(stored.id(), stored.version())).encode()))
+                    .onFailure(throwable -> {
+                        int statusCode;
+                        if (throwable instanceof IllegalArgumentException) {
+                            statusCode = 400;
+                        } else if (throwable instanceof NoSuchElementException) {
+                            statusCode = 404;
+                        } else if (throwable instanceof IllegalStateException) {
+                            statusCode = 409;
+                        } else {
+                            throwable.printStackTrace();
+                            context.response()
+                                    .setStatusCode(500)
+                                    .putHeader("Content-Type", "application/json")
+                                    .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+                            return;
+                        }
+                        context.response()
+                                .setStatusCode(statusCode)
+                                .putHeader("Content-Type", "application/json")
+                                .end(JsonObject.mapFrom(new MessageResponse(throwable.getMessage())).encode());
+                    });
+        } catch (IllegalArgumentException | ClassCastException | DecodeException e) {
             e.printStackTrace();
             context.response()
                     .setStatusCode(400)
@@ -41,17 +168,50 @@ public class DiagramController {
         }
     }
 
+    public void codeCacheStats(RoutingContext context) {
+        context.response()
+                .setStatusCode(200)
+                .putHeader("Content-Type", "application/json")
+                .end(JsonObject.mapFrom(codeCache.getStats()).encode());
+    }
+
+    public void fragmentCacheStats(RoutingContext context) {
+        context.response()
+                .setStatusCode(200)
+                .putHeader("Content-Type", "application/json")
+                .end(JsonObject.mapFrom(generateCodeService.getFragmentStats()).encode());
+    }
+
     public void runDiagram(RoutingContext context) {
         try {
             Diagram diagram = context.get("convertedData");
             String clientSocketId = context.get("clientSocketId");
-            runDiagramService.runDiagram(diagram, clientSocketId);
+            RunOptions options = runOptions(context);
+            Future<List<Map<Integer, BlockProfile>>> run = runDiagramService.runDiagram(diagram, clientSocketId, options);
+            if (options.profile()) {
+                run.onSuccess(profile -> context.response()
+                                .setStatusCode(200)
+                                .putHeader("Content-Type", "application/json")
+                                .end(JsonObject.mapFrom(new ProfileResponse(profile)).encode()))
+                        .onFailure(throwable -> {
+                            throwable.printStackTrace();
+                            context.response()
+                                    .setStatusCode(500)
+                                    .putHeader("Content-Type", "application/json")
+                                    .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+                        });
+            }
         } catch (IllegalArgumentException e) {
             e.printStackTrace();
             context.response()
                     .setStatusCode(400)
                     .putHeader("Content-Type", "application/json")
                     .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
+        } catch (RejectedExecutionException e) {
+            context.response()
+                    .setStatusCode(503)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
         } catch (Exception e) {
             e.printStackTrace();
             context.response()
@@ -60,4 +220,104 @@ public class DiagramController {
                     .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
         }
     }
+
+    public void runBatch(RoutingContext context) {
+        try {
+            Diagram diagram = context.get("convertedData");
+            RunOptions options = runOptions(context);
+            List<String> inputs = new ArrayList<>();
+            JsonObject fields = context.get("requestFields");
+            JsonArray inputsJson = fields.getJsonArray("inputs");
+            if (inputsJson != null) {
+                inputsJson.forEach(input -> inputs.add(String.valueOf(input)));
+            }
+
+            runDiagramService.runBatch(diagram, inputs, options)
+                    .onSuccess(response -> context.response()
+                            .setStatusCode(200)
+                            .putHeader("Content-Type", "application/json")
+                            .end(JsonObject.mapFrom(response).encode()))
+                    .onFailure(throwable -> {
+                        throwable.printStackTrace();
+                        context.response()
+                                .setStatusCode(500)
+                                .putHeader("Content-Type", "application/json")
+                                .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+                    });
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            context.response()
+                    .setStatusCode(400)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
+        } catch (RejectedExecutionException e) {
+            context.response()
+                    .setStatusCode(503)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
+        } catch (Exception e) {
+            e.printStackTrace();
+            context.response()
+                    .setStatusCode(500)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+        }
+    }
+
+    public void runVectors(RoutingContext context) {
+        try {
+            Diagram diagram = context.get("convertedData");
+            JsonObject fields = context.get("requestFields");
+            JsonArray vectorsJson = fields.getJsonArray("inputVectors");
+            if (vectorsJson == null) {
+                throw new IllegalArgumentException("inputVectors is required");
+            }
+            List<List<String>> vectors = new ArrayList<>();
+            for (Object vector : vectorsJson) {
+                if (!(vector instanceof JsonArray vectorJson)) {
+                    throw new IllegalArgumentException("Every input vector must be an array");
+                }
+                List<String> inputs = new ArrayList<>();
+                vectorJson.forEach(input -> inputs.add(String.valueOf(input)));
+                vectors.add(inputs);
+            }
+
+            runDiagramService.runVectors(diagram, vectors)
+                    .onSuccess(response -> context.response()
+                            .setStatusCode(200)
+                            .putHeader("Content-Type", "application/json")
+                            .end(JsonObject.mapFrom(response).encode()))
+                    .onFailure(throwable -> {
+                        throwable.printStackTrace();
+                        context.response()
+                                .setStatusCode(500)
+                                .putHeader("Content-Type", "application/json")
+                                .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+                    });
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            context.response()
+                    .setStatusCode(400)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
+        } catch (RejectedExecutionException e) {
+            context.response()
+                    .setStatusCode(503)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
+        } catch (Exception e) {
+            e.printStackTrace();
+            context.response()
+                    .setStatusCode(500)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse("Something went wrong")).encode());
+        }
+    }
+
+    private RunOptions runOptions(RoutingContext context) {
+        ExecutionMode mode = ExecutionMode.fromName(context.queryParams().get("mode"));
+        String seed = context.queryParams().get("seed");
+        boolean profile = Boolean.parseBoolean(context.queryParams().get("profile"));
+        return new RunOptions(mode, seed == null ? null : Long.valueOf(seed), profile);
+    }
 }
@@ -0,0 +1,10 @@
+package org.plema.dtos;
+
+import org.plema.visitor.runner.BlockProfile;
+
+import java.util.List;
+import java.util.Map;
+
+public record BatchRunResponse(String status, String error, List<String> output, Map<String, Object> variables,
+                               List<Map<Integer, BlockProfile>> profile) {
+}
@@ -0,0 +1,4 @@
+package org.plema.dtos;
+
+public record CodeCacheStats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+}
@@ -0,0 +1,4 @@
+package org.plema.dtos;
+
+public record DiagramHandle(String id, int version) {
+}
@@ -0,0 +1,9 @@
+package org.plema.dtos;
+
+import org.plema.visitor.runner.BlockProfile;
+
+import java.util.List;
+import java.util.Map;
+
+public record ProfileResponse(List<Map<Integer, BlockProfile>> profile) {
+}
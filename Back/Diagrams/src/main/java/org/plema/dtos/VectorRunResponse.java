@@ -0,0 +1,6 @@
+package org.plema.dtos;
+
+import java.util.List;
+
+public record VectorRunResponse(List<VectorRunResult> results) {
+}
@@ -0,0 +1,8 @@
+package org.plema.dtos;
+
+import java.util.List;
+import java.util.Map;
+
+public record VectorRunResult(String status, String error, List<String> output, Map<String, Object> variables,
+                              long steps) {
+}
@@ -0,0 +1,38 @@
+package org.plema.middlewares;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.InputStream;
+
+class BufferInputStream extends InputStream {
+    private final Buffer buffer;
+    private int position;
+
+    BufferInputStream(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return position < buffer.length() ? buffer.getByte(position++) & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int count = Math.min(length, buffer.length() - position);
+        if (count <= 0) {
+            return -1;
+        }
+        buffer.getBytes(position, position + count, target, offset);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.length() - position;
+    }
+}
@@ -0,0 +1,37 @@
+package org.plema.middlewares;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.plema.dtos.CodeResponse;
+import org.plema.models.DiagramSource;
+import org.plema.services.CodeCache;
+
+public class CodeCacheMiddleware implements Handler<RoutingContext> {
+    private final CodeCache codeCache;
+
+    public CodeCacheMiddleware(CodeCache codeCache) {
+        this.codeCache = codeCache;
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        String key = routingContext.get("diagramDigest");
+        if (key == null) {
+            DiagramSource source = routingContext.get("diagramSource");
+            key = source.digest();
+        }
+
+        String code = codeCache.get(key);
+        if (code != null) {
+            routingContext.response()
+                    .setStatusCode(201)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new CodeResponse("Code generated", code)).encode());
+            return;
+        }
+
+        routingContext.put("codeCacheKey", key);
+        routingContext.next();
+    }
+}
@@ -0,0 +1,58 @@
+package org.plema.middlewares;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.plema.dtos.MessageResponse;
+import org.plema.models.DiagramParser;
+import org.plema.models.DiagramSource;
+
+import java.io.InputStream;
+
+public class DiagramSourceMiddleware implements Handler<RoutingContext> {
+    private static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        DiagramSource source;
+        try {
+            source = read(routingContext);
+        } catch (IllegalArgumentException e) {
+            routingContext.response()
+                    .setStatusCode(400)
+                    .putHeader("Content-Type", "application/json")
+                    .end(JsonObject.mapFrom(new MessageResponse(e.getMessage())).encode());
+            return;
+        }
+
+        JsonObject fields = new JsonObject(source.fields());
+        routingContext.put("diagramSource", source);
+        routingContext.put("requestFields", fields);
+
+        if (fields.getValue("clientSocketId") instanceof String clientSocketId) {
+            routingContext.put("clientSocketId", clientSocketId);
+        }
+        routingContext.next();
+    }
+
+    private DiagramSource read(RoutingContext routingContext) {
+        Buffer body = routingContext.body().buffer();
+        if (body == null || body.length() == 0) {
+            throw new IllegalArgumentException("Request body is empty");
+        }
+        InputStream input = new BufferInputStream(body);
+        if (SMILE_CONTENT_TYPE.equalsIgnoreCase(mediaType(routingContext.request().getHeader("Content-Type")))) {
+            return DiagramParser.readSmile(input);
+        }
+        return DiagramParser.read(input);
+    }
+
+    private static String mediaType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int parameters = contentType.indexOf(';');
+        return (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim();
+    }
+}
@@ -0,0 +1,58 @@
+package org.plema.middlewares;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.plema.dtos.MessageResponse;
+import org.plema.models.StoredDiagram;
+import org.plema.services.DiagramStore;
+
+public class StoredDiagramMiddleware implements Handler<RoutingContext> {
+    private final DiagramStore diagramStore;
+
+    public StoredDiagramMiddleware(DiagramStore diagramStore) {
+        this.diagramStore = diagramStore;
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        String id = routingContext.pathParam("id");
+        StoredDiagram stored = diagramStore.get(id);
+        if (stored == null) {
+            respond(routingContext, 404, "Diagram " + id + " not found");
+            return;
+        }
+
+        JsonObject fields;
+        try {
+            String version = routingContext.queryParams().get("version");
+            if (version != null && Integer.parseInt(version) != stored.version()) {
+                respond(routingContext, 409, "Diagram " + id + " is at version " + stored.version());
+                return;
+            }
+            Buffer body = routingContext.body().buffer();
+            fields = body == null || body.length() == 0 ? new JsonObject() : body.toJsonObject();
+        } catch (NumberFormatException | DecodeException e) {
+            respond(routingContext, 400, e.getMessage());
+            return;
+        }
+
+        routingContext.put("storedDiagram", stored);
+        routingContext.put("convertedData", stored.diagram());
+        routingContext.put("diagramDigest", stored.digest());
+        routingContext.put("requestFields", fields);
+        if (fields.getValue("clientSocketId") instanceof String clientSocketId) {
+            routingContext.put("clientSocketId", clientSocketId);
+        }
+        routingContext.next();
+    }
+
+    private static void respond(RoutingContext routingContext, int statusCode, String message) {
+        routingContext.response()
+                .setStatusCode(statusCode)
+                .putHeader("Content-Type", "application/json")
+                .end(JsonObject.mapFrom(new MessageResponse(message)).encode());
+    }
+}
@@ -1,8 +1,13 @@
 package org.plema.models;
 
+import org.plema.BlockType;
+
+import java.util.Map;
+
 public abstract class AbstractBlock implements Visitable {
     protected final Integer id;
     protected final Integer next;
+    private AbstractBlock nextBlock;
 
     protected AbstractBlock(AbstractBuilder<?> builder) {
         this.id = builder.id;
@@ -17,6 +22,29 @@ public abstract class AbstractBlock implements Visitable {
         return next;
     }
 
+    public abstract BlockType getType();
+
+    abstract AbstractBlock copy();
+
+    public AbstractBlock getNextBlock() {
+        return nextBlock;
+    }
+
+    void link(Map<Integer, AbstractBlock> blocks) {
+        nextBlock = resolve(blocks, next);
+    }
+
+    protected AbstractBlock resolve(Map<Integer, AbstractBlock> blocks, Integer targetId) {
+        if (targetId == null) {
+            return null;
+        }
+        AbstractBlock target = blocks.get(targetId);
+        if (target == null) {
+            throw new IllegalArgumentException("Block " + id + " references missing block " + targetId);
+        }
+        return target;
+    }
+
     public abstract static class AbstractBuilder<T extends AbstractBuilder<T>> {
         private Integer id;
         private Integer next;
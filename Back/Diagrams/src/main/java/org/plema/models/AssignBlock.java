@@ -1,18 +1,62 @@
 package org.plema.models;
 
+import org.plema.BlockType;
 import org.plema.visitor.Visitor;
 
 public class AssignBlock extends ExpressionBlock{
+    private final Variable target;
+    private final boolean selfReferencing;
+
     private AssignBlock(Builder builder) {
         super(builder);
+        this.target = builder.target;
+        this.selfReferencing = builder.selfReferencing;
+    }
+
+    @Override
+    public BlockType getType() {
+        return BlockType.ASSIGN;
     }
 
     @Override
-    public Integer doVisitor(Visitor v) {
+    public <R> R doVisitor(Visitor<R> v) {
         return v.doAssign(this);
     }
 
+    public Variable getTarget() {
+        return target;
+    }
+
+    public boolean isSelfReferencing() {
+        return selfReferencing;
+    }
+
+    @Override
+    AssignBlock copy() {
+        return new Builder()
+                .id(id)
+                .next(next)
+                .expression(expression)
+                .compiledExpression(compiledExpression)
+                .target(target)
+                .selfReferencing(selfReferencing)
+                .build();
+    }
+
     public static class Builder extends ExpressionBuilder<Builder> {
+        private Variable target;
+        private boolean selfReferencing;
+
+        public Builder target(Variable target) {
+            this.target = target;
+            return this;
+        }
+
+        public Builder selfReferencing(boolean selfReferencing) {
+            this.selfReferencing = selfReferencing;
+            return this;
+        }
+
         @Override
         public AssignBlock build() {
             return new AssignBlock(this);
@@ -1,6 +1,9 @@
 package org.plema.models;
 
-import io.vertx.core.json.JsonObject;
+import org.plema.visitor.runner.Expression;
+import org.plema.visitor.runner.InvalidExpression;
+import org.plema.visitor.runner.PrintTemplate;
+import org.plema.visitor.runner.RpnHandler;
 
 import java.util.HashMap;
 import java.util.List;
@@ -8,7 +11,7 @@ import java.util.Map;
 import java.util.function.Function;
 
 public class BlockFactory {
-    private final Map<String, Function<JsonObject, AbstractBlock>> blockBuilders = new HashMap<>();
+    private final Map<String, Function<BlockFields, AbstractBlock>> blockBuilders = new HashMap<>();
     private final Map<String, Variable> variableMap = new HashMap<>();
 
     public BlockFactory(List<Variable> variables) {
@@ -16,63 +19,105 @@ public class BlockFactory {
             variableMap.put(variable.getName(), variable);
         }
 
-        registerBlockType("input", json -> {
-            String variableName = json.getString("variable");
-            return new InputBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next"))
-                .variable(variableMap.get(variableName))
-                .build();
-        });
-
-        registerBlockType("assign", json -> new AssignBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next"))
-                .expression(json.getString("expression"))
+        registerBlockType("input", fields -> new InputBlock.Builder()
+                .id(fields.id())
+                .next(fields.next())
+                .variable(variableMap.get(fields.variable()))
+                .variableName(fields.variable())
                 .build());
 
-        registerBlockType("condition", json -> new ConditionBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next"))
-                .expression(json.getString("expression"))
-                .trueBranch(json.getInteger("trueBranch"))
-                .falseBranch(json.getInteger("falseBranch", null))
+        registerBlockType("assign", fields -> {
+            String expression = fields.expression();
+            AssignBlock.Builder builder = new AssignBlock.Builder()
+                    .id(fields.id())
+                    .next(fields.next())
+                    .expression(expression);
+
+            String[] parts = expression == null ? new String[0] : expression.split("=", 2);
+            if (parts.length < 2) {
+                return builder.compiledExpression(new InvalidExpression("Invalid assignment: " + expression)).build();
+            }
+
+            String variableName = parts[0].trim();
+            Variable target = variableMap.get(variableName);
+            if (target == null) {
+                return builder.compiledExpression(new InvalidExpression("Variable " + variableName + " not found"))
+                        .build();
+            }
+
+            return builder.target(target)
+                    .selfReferencing(RpnHandler.references(parts[1], target))
+                    .compiledExpression(compileExpression(parts[1]))
+                    .build();
+        });
+
+        registerBlockType("condition", fields -> new ConditionBlock.Builder()
+                .id(fields.id())
+                .next(fields.next())
+                .expression(fields.expression())
+                .compiledExpression(compileCondition(fields.expression()))
+                .trueBranch(fields.trueBranch())
+                .falseBranch(fields.falseBranch())
                 .build());
 
-        registerBlockType("print", json -> new PrintBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next"))
-                .expression(json.getString("expression"))
+        registerBlockType("print", fields -> new PrintBlock.Builder()
+                .id(fields.id())
+                .next(fields.next())
+                .expression(fields.expression())
+                .compiledExpression(compilePrintTemplate(fields.expression()))
                 .build());
 
-        registerBlockType("while", json -> new WhileBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next"))
-                .expression(json.getString("expression"))
-                .body(json.getInteger("body"))
+        registerBlockType("while", fields -> new WhileBlock.Builder()
+                .id(fields.id())
+                .next(fields.next())
+                .expression(fields.expression())
+                .compiledExpression(compileCondition(fields.expression()))
+                .body(fields.body())
                 .build());
 
-        registerBlockType("end_condition", json -> new EndBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next", null))
+        registerBlockType("end_condition", fields -> new EndBlock.Builder()
+                .id(fields.id())
+                .next(fields.next())
                 .build());
 
-        registerBlockType("end", json -> new EndBlock.Builder()
-                .id(json.getInteger("id"))
-                .next(json.getInteger("next", null))
+        registerBlockType("end", fields -> new EndBlock.Builder()
+                .id(fields.id())
+                .next(fields.next())
                 .build());
     }
 
-    public void registerBlockType(String type, Function<JsonObject, AbstractBlock> builder) {
+    public void registerBlockType(String type, Function<BlockFields, AbstractBlock> builder) {
         blockBuilders.put(type, builder);
     }
 
-    public AbstractBlock createBlock(JsonObject blockJson) {
-        String type = blockJson.getString("type");
-        Function<JsonObject, AbstractBlock> builder = blockBuilders.get(type);
+    public AbstractBlock createBlock(BlockFields fields) {
+        Function<BlockFields, AbstractBlock> builder = blockBuilders.get(fields.type());
         if (builder == null) {
-            throw new IllegalArgumentException("Unknown block type: " + type);
+            throw new IllegalArgumentException("Unknown block type: " + fields.type());
+        }
+        return builder.apply(fields);
+    }
+
+    private Expression compileExpression(String expression) {
+        try {
+            return RpnHandler.compile(expression, variableMap);
+        } catch (IllegalArgumentException e) {
+            return new InvalidExpression(e.getMessage());
+        }
+    }
+
+    private Expression compilePrintTemplate(String expression) {
+        if (expression == null) {
+            return new InvalidExpression("Expression is empty");
+        }
+        return PrintTemplate.compile(expression, variableMap);
+    }
+
+    private Expression compileCondition(String expression) {
+        try {
+            return RpnHandler.compileCondition(expression, variableMap);
+        } catch (IllegalArgumentException e) {
+            return new InvalidExpression(e.getMessage());
         }
-        return builder.apply(blockJson);
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package org.plema.models;
+
+import io.vertx.core.json.JsonObject;
+
+public record BlockFields(String type, Integer id, Integer next, String expression, Integer trueBranch,
+                          Integer falseBranch, Integer body, String variable) {
+
+    public static BlockFields of(AbstractBlock block) {
+        String expression = block instanceof ExpressionBlock expressionBlock ? expressionBlock.getExpression() : null;
+        Integer trueBranch = null;
+        Integer falseBranch = null;
+        Integer body = null;
+        String variable = null;
+        if (block instanceof ConditionBlock conditionBlock) {
+            trueBranch = conditionBlock.getTrueBranch();
+            falseBranch = conditionBlock.getFalseBranch();
+        } else if (block instanceof WhileBlock whileBlock) {
+            body = whileBlock.getBody();
+        } else if (block instanceof InputBlock inputBlock) {
+            variable = inputBlock.getVariableName();
+        }
+        return new BlockFields(block.getType().name().toLowerCase(), block.getId(), block.getNext(), expression,
+                trueBranch, falseBranch, body, variable);
+    }
+
+    public BlockFields canonical() {
+        if (type == null) {
+            return this;
+        }
+        return switch (type) {
+            case "input" -> new BlockFields(type, id, next, null, null, null, null, variable);
+            case "assign", "print" -> new BlockFields(type, id, next, expression, null, null, null, null);
+            case "condition" -> new BlockFields(type, id, next, expression, trueBranch, falseBranch, null, null);
+            case "while" -> new BlockFields(type, id, next, expression, null, null, body, null);
+            case "end", "end_condition" -> new BlockFields("end", id, next, null, null, null, null, null);
+            default -> this;
+        };
+    }
+
+    public static BlockFields fromJson(JsonObject json) {
+        return new BlockFields(
+                json.getString("type"),
+                json.getInteger("id"),
+                json.getInteger("next"),
+                json.getString("expression"),
+                json.getInteger("trueBranch"),
+                json.getInteger("falseBranch"),
+                json.getInteger("body"),
+                json.getString("variable")
+        );
+    }
+}
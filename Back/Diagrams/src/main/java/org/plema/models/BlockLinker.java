@@ -0,0 +1,31 @@
+package org.plema.models;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BlockLinker {
+    private static final Integer START_BLOCK_ID = 1;
+
+    public static AbstractBlock link(List<AbstractBlock> thread) {
+        Map<Integer, AbstractBlock> blocks = new HashMap<>();
+        for (AbstractBlock block : thread) {
+            if (block.getId() == null) {
+                throw new IllegalArgumentException("Block id is missing");
+            }
+            if (blocks.put(block.getId(), block) != null) {
+                throw new IllegalArgumentException("Duplicate block id: " + block.getId());
+            }
+        }
+
+        AbstractBlock start = blocks.get(START_BLOCK_ID);
+        if (start == null) {
+            throw new IllegalArgumentException("Thread has no start block " + START_BLOCK_ID);
+        }
+
+        for (AbstractBlock block : thread) {
+            block.link(blocks);
+        }
+        return start;
+    }
+}
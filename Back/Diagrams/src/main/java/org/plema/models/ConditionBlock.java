@@ -1,10 +1,15 @@
 package org.plema.models;
 
+import org.plema.BlockType;
 import org.plema.visitor.Visitor;
 
+import java.util.Map;
+
 public class ConditionBlock extends ExpressionBlock {
     private final Integer trueBranch;
     private final Integer falseBranch;
+    private AbstractBlock trueBlock;
+    private AbstractBlock falseBlock;
 
     private ConditionBlock(Builder builder) {
         super(builder);
@@ -13,7 +18,12 @@ public class ConditionBlock extends ExpressionBlock {
     }
 
     @Override
-    public Integer doVisitor(Visitor v) {
+    public BlockType getType() {
+        return BlockType.CONDITION;
+    }
+
+    @Override
+    public <R> R doVisitor(Visitor<R> v) {
         return v.doCondition(this);
     }
 
@@ -25,6 +35,33 @@ public class ConditionBlock extends ExpressionBlock {
         return falseBranch;
     }
 
+    public AbstractBlock getTrueBlock() {
+        return trueBlock;
+    }
+
+    public AbstractBlock getFalseBlock() {
+        return falseBlock;
+    }
+
+    @Override
+    ConditionBlock copy() {
+        return new Builder()
+                .id(id)
+                .next(next)
+                .expression(expression)
+                .compiledExpression(compiledExpression)
+                .trueBranch(trueBranch)
+                .falseBranch(falseBranch)
+                .build();
+    }
+
+    @Override
+    void link(Map<Integer, AbstractBlock> blocks) {
+        super.link(blocks);
+        trueBlock = resolve(blocks, trueBranch);
+        falseBlock = resolve(blocks, falseBranch);
+    }
+
     public static class Builder extends ExpressionBuilder<Builder> {
         private Integer trueBranch;
         private Integer falseBranch;
@@ -3,5 +3,6 @@ package org.plema.models;
 import java.util.List;
 
 public record Diagram(List<Variable> variables,
-                      List<List<AbstractBlock>> threads) {
+                      List<List<AbstractBlock>> threads,
+                      List<AbstractBlock> entries) {
 }
@@ -0,0 +1,93 @@
+package org.plema.models;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+public class DiagramDigest {
+
+    public static String of(Diagram diagram) {
+        StringBuilder text = new StringBuilder();
+        appendVariables(text, diagram.variables());
+        for (List<AbstractBlock> thread : diagram.threads()) {
+            appendThread(text, fieldsOf(thread));
+        }
+        return sha256(text);
+    }
+
+    public static String of(DiagramSource source) {
+        StringBuilder text = new StringBuilder();
+        appendVariables(text, source.variables());
+        for (List<BlockFields> thread : source.threads()) {
+            List<BlockFields> canonical = new ArrayList<>(thread.size());
+            for (BlockFields fields : thread) {
+                canonical.add(fields.canonical());
+            }
+            appendThread(text, canonical);
+        }
+        return sha256(text);
+    }
+
+    public static String ofThread(List<Variable> variables, List<AbstractBlock> thread) {
+        StringBuilder text = new StringBuilder();
+        appendVariables(text, variables);
+        appendThread(text, fieldsOf(thread));
+        return sha256(text);
+    }
+
+    private static List<BlockFields> fieldsOf(List<AbstractBlock> thread) {
+        List<BlockFields> fields = new ArrayList<>(thread.size());
+        for (AbstractBlock block : thread) {
+            fields.add(BlockFields.of(block));
+        }
+        return fields;
+    }
+
+    private static void appendVariables(StringBuilder text, List<Variable> variables) {
+        List<Variable> sorted = new ArrayList<>(variables);
+        sorted.sort(Comparator.comparing(Variable::getName));
+        text.append('V').append(sorted.size());
+        for (Variable variable : sorted) {
+            appendString(text, variable.getName());
+            text.append(variable.getType().name());
+        }
+    }
+
+    private static void appendThread(StringBuilder text, List<BlockFields> thread) {
+        List<BlockFields> sorted = new ArrayList<>(thread);
+        sorted.sort(Comparator.comparing(BlockFields::id, Comparator.nullsFirst(Comparator.naturalOrder())));
+        text.append('T').append(sorted.size());
+        for (BlockFields block : sorted) {
+            text.append('B');
+            appendString(text, block.type());
+            text.append('#').append(block.id())
+                    .append('>').append(block.next());
+            appendString(text, block.expression());
+            text.append('?').append(block.trueBranch())
+                    .append(':').append(block.falseBranch())
+                    .append('@').append(block.body());
+            appendString(text, block.variable());
+        }
+    }
+
+    private static void appendString(StringBuilder text, String value) {
+        if (value == null) {
+            text.append('-');
+            return;
+        }
+        text.append(value.length()).append('"').append(value);
+    }
+
+    private static String sha256(CharSequence text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
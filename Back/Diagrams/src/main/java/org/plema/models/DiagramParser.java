@@ -0,0 +1,186 @@
+package org.plema.models;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.plema.DataType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DiagramParser {
+    private static final int MAX_BLOCKS = Integer.getInteger("diagrams.maxBlocks", 100_000);
+    private static final int MAX_EXPRESSION_LENGTH = Integer.getInteger("diagrams.maxExpressionLength", 10_000);
+    private static final JsonFactory JSON_FACTORY = new MappingJsonFactory();
+    private static final JsonFactory SMILE_FACTORY = new ObjectMapper(new SmileFactory()).getFactory();
+
+    private final JsonParser parser;
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private List<Variable> variables;
+    private List<List<BlockFields>> threads;
+    private int blockCount;
+
+    private DiagramParser(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    public static DiagramUpload parse(InputStream input) {
+        return read(input).build();
+    }
+
+    public static DiagramUpload parseSmile(InputStream input) {
+        return readSmile(input).build();
+    }
+
+    public static DiagramSource read(InputStream input) {
+        return read(JSON_FACTORY, input);
+    }
+
+    public static DiagramSource readSmile(InputStream input) {
+        return read(SMILE_FACTORY, input);
+    }
+
+    private static DiagramSource read(JsonFactory factory, InputStream input) {
+        try (JsonParser parser = factory.createParser(input)) {
+            return new DiagramParser(parser).readDiagram();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed " + factory.getFormatName() + ": " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read diagram: " + e.getMessage());
+        }
+    }
+
+    private DiagramSource readDiagram() throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT, "Diagram must be an object");
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "variables" -> readVariables(token);
+                case "threads" -> readThreads(token);
+                default -> fields.put(field, parser.readValueAs(Object.class));
+            }
+        }
+
+        if (variables == null) {
+            throw new IllegalArgumentException("Field variables is required");
+        }
+        if (threads == null) {
+            throw new IllegalArgumentException("Field threads is required");
+        }
+        return new DiagramSource(variables, threads, fields);
+    }
+
+    private void readVariables(JsonToken token) throws IOException {
+        expect(token, JsonToken.START_ARRAY, "Field variables must be an array");
+        variables = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser.currentToken(), JsonToken.START_OBJECT, "Every variable must be an object");
+            String name = null;
+            String type = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> name = readString(field);
+                    case "type" -> type = readString(field);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (name == null || type == null) {
+                throw new IllegalArgumentException("Every variable needs a name and a type");
+            }
+            variables.add(new Variable(name, dataTypeOf(type), variables.size()));
+        }
+    }
+
+    private void readThreads(JsonToken token) throws IOException {
+        expect(token, JsonToken.START_ARRAY, "Field threads must be an array");
+        threads = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser.currentToken(), JsonToken.START_ARRAY, "Every thread must be an array");
+            List<BlockFields> thread = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                thread.add(readBlock());
+            }
+            threads.add(thread);
+        }
+    }
+
+    private BlockFields readBlock() throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT, "Every block must be an object");
+        if (++blockCount > MAX_BLOCKS) {
+            throw new IllegalArgumentException("Diagram has more than " + MAX_BLOCKS + " blocks");
+        }
+
+        String type = null;
+        Integer id = null;
+        Integer next = null;
+        String expression = null;
+        Integer trueBranch = null;
+        Integer falseBranch = null;
+        Integer body = null;
+        String variable = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "type" -> type = readString(field);
+                case "id" -> id = readInteger(field);
+                case "next" -> next = readInteger(field);
+                case "expression" -> expression = readExpression();
+                case "trueBranch" -> trueBranch = readInteger(field);
+                case "falseBranch" -> falseBranch = readInteger(field);
+                case "body" -> body = readInteger(field);
+                case "variable" -> variable = readString(field);
+                default -> parser.skipChildren();
+            }
+        }
+        return new BlockFields(type, id, next, expression, trueBranch, falseBranch, body, variable);
+    }
+
+    private String readExpression() throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING && parser.getTextLength() > MAX_EXPRESSION_LENGTH) {
+            throw new IllegalArgumentException("Expression is longer than " + MAX_EXPRESSION_LENGTH + " characters");
+        }
+        return readString("expression");
+    }
+
+    private String readString(String field) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NULL -> null;
+            default -> throw new IllegalArgumentException("Field " + field + " must be a string");
+        };
+    }
+
+    private Integer readInteger(String field) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue().intValue();
+            case VALUE_NULL -> null;
+            default -> throw new IllegalArgumentException("Field " + field + " must be a number");
+        };
+    }
+
+    static DataType dataTypeOf(String type) {
+        try {
+            return DataType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown variable type: " + type);
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, String message) {
+        if (actual != expected) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
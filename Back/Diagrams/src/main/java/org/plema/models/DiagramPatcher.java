@@ -0,0 +1,192 @@
+package org.plema.models;
+
+import org.plema.DataType;
+import org.plema.visitor.runner.RpnHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DiagramPatcher {
+    private final Diagram diagram;
+    private final List<Variable> variables;
+    private final Map<Integer, Map<Integer, Object>> editedThreads = new HashMap<>();
+
+    private DiagramPatcher(Diagram diagram) {
+        this.diagram = diagram;
+        this.variables = new ArrayList<>(diagram.variables());
+    }
+
+    public static Diagram apply(Diagram diagram, List<PatchOperation> operations) {
+        DiagramPatcher patcher = new DiagramPatcher(diagram);
+        for (PatchOperation operation : operations) {
+            patcher.apply(operation);
+        }
+        return patcher.build();
+    }
+
+    private void apply(PatchOperation operation) {
+        switch (operation.op()) {
+            case "addVariable" -> addVariable(operation.name(), operation.type());
+            case "removeVariable" -> removeVariable(operation.name());
+            case "addBlock" -> {
+                BlockFields block = requireBlock(operation);
+                Map<Integer, Object> thread = editThread(operation.thread());
+                if (thread.containsKey(block.id())) {
+                    throw new IllegalArgumentException("Duplicate block id: " + block.id());
+                }
+                thread.put(block.id(), block);
+            }
+            case "updateBlock" -> {
+                BlockFields block = requireBlock(operation);
+                Map<Integer, Object> thread = editThread(operation.thread());
+                requireExisting(thread, block.id(), operation.thread());
+                thread.put(block.id(), block);
+            }
+            case "removeBlock" -> {
+                Map<Integer, Object> thread = editThread(operation.thread());
+                requireExisting(thread, operation.blockId(), operation.thread());
+                thread.remove(operation.blockId());
+            }
+            default -> throw new IllegalArgumentException("Unknown patch operation: " + operation.op());
+        }
+    }
+
+    private void addVariable(String name, String type) {
+        if (name == null || type == null) {
+            throw new IllegalArgumentException("addVariable needs a name and a type");
+        }
+        if (indexOfVariable(name) >= 0) {
+            throw new IllegalArgumentException("Variable " + name + " already exists");
+        }
+        DataType dataType = DiagramParser.dataTypeOf(type);
+        variables.add(new Variable(name, dataType, -1));
+    }
+
+    private void removeVariable(String name) {
+        int index = indexOfVariable(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Variable " + name + " not found");
+        }
+        variables.remove(index);
+    }
+
+    private int indexOfVariable(String name) {
+        for (int i = 0; i < variables.size(); i++) {
+            if (variables.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static BlockFields requireBlock(PatchOperation operation) {
+        if (operation.block() == null || operation.block().id() == null) {
+            throw new IllegalArgumentException(operation.op() + " needs a block with an id");
+        }
+        return operation.block();
+    }
+
+    private static void requireExisting(Map<Integer, Object> thread, Integer blockId, Integer threadIndex) {
+        if (!thread.containsKey(blockId)) {
+            throw new IllegalArgumentException("Thread " + threadIndex + " has no block " + blockId);
+        }
+    }
+
+    private Map<Integer, Object> editThread(Integer threadIndex) {
+        if (threadIndex == null || threadIndex < 0 || threadIndex >= diagram.threads().size()) {
+            throw new IllegalArgumentException("Thread " + threadIndex + " does not exist");
+        }
+        return editedThreads.computeIfAbsent(threadIndex, index -> {
+            Map<Integer, Object> blocks = new LinkedHashMap<>();
+            for (AbstractBlock block : diagram.threads().get(index)) {
+                blocks.put(block.getId(), block);
+            }
+            return blocks;
+        });
+    }
+
+    private Diagram build() {
+        List<Variable> patchedVariables = new ArrayList<>();
+        Set<String> changedNames = new HashSet<>();
+        for (Variable variable : diagram.variables()) {
+            changedNames.add(variable.getName());
+        }
+        for (int slot = 0; slot < variables.size(); slot++) {
+            Variable variable = variables.get(slot);
+            if (variable.getSlot() == slot) {
+                changedNames.remove(variable.getName());
+                patchedVariables.add(variable);
+            } else {
+                changedNames.add(variable.getName());
+                patchedVariables.add(new Variable(variable.getName(), variable.getType(), slot));
+            }
+        }
+
+        BlockFactory blockFactory = new BlockFactory(patchedVariables);
+        List<List<AbstractBlock>> threads = new ArrayList<>();
+        List<AbstractBlock> entries = new ArrayList<>();
+        for (int i = 0; i < diagram.threads().size(); i++) {
+            List<AbstractBlock> thread = diagram.threads().get(i);
+            Map<Integer, Object> edited = editedThreads.get(i);
+            if (edited == null && !referencesAny(thread, changedNames)) {
+                threads.add(thread);
+                entries.add(diagram.entries().get(i));
+                continue;
+            }
+
+            List<AbstractBlock> patchedThread = new ArrayList<>();
+            for (Object block : edited != null ? edited.values() : thread) {
+                patchedThread.add(rebuild(block, blockFactory, changedNames));
+            }
+            threads.add(patchedThread);
+            entries.add(BlockLinker.link(patchedThread));
+        }
+
+        return new Diagram(patchedVariables, threads, entries);
+    }
+
+    private static AbstractBlock rebuild(Object block, BlockFactory blockFactory, Set<String> changedNames) {
+        if (block instanceof BlockFields fields) {
+            return blockFactory.createBlock(fields);
+        }
+        AbstractBlock existing = (AbstractBlock) block;
+        if (references(existing, changedNames)) {
+            return blockFactory.createBlock(BlockFields.of(existing));
+        }
+        return existing.copy();
+    }
+
+    private static boolean referencesAny(List<AbstractBlock> thread, Set<String> names) {
+        if (names.isEmpty()) {
+            return false;
+        }
+        for (AbstractBlock block : thread) {
+            if (references(block, names)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean references(AbstractBlock block, Set<String> names) {
+        if (names.isEmpty()) {
+            return false;
+        }
+        if (block instanceof InputBlock inputBlock) {
+            return names.contains(inputBlock.getVariableName());
+        }
+        if (block instanceof ExpressionBlock expressionBlock && expressionBlock.getExpression() != null) {
+            for (String identifier : RpnHandler.identifiers(expressionBlock.getExpression())) {
+                if (names.contains(identifier)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
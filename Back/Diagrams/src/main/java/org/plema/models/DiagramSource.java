@@ -0,0 +1,27 @@
+package org.plema.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public record DiagramSource(List<Variable> variables, List<List<BlockFields>> threads, Map<String, Object> fields) {
+
+    public String digest() {
+        return DiagramDigest.of(this);
+    }
+
+    public DiagramUpload build() {
+        BlockFactory blockFactory = new BlockFactory(variables);
+        List<List<AbstractBlock>> blocks = new ArrayList<>();
+        List<AbstractBlock> entries = new ArrayList<>();
+        for (List<BlockFields> thread : threads) {
+            List<AbstractBlock> threadBlocks = new ArrayList<>();
+            for (BlockFields fields : thread) {
+                threadBlocks.add(blockFactory.createBlock(fields));
+            }
+            blocks.add(threadBlocks);
+            entries.add(BlockLinker.link(threadBlocks));
+        }
+        return new DiagramUpload(new Diagram(variables, blocks, entries), fields);
+    }
+}
@@ -0,0 +1,6 @@
+package org.plema.models;
+
+import java.util.Map;
+
+public record DiagramUpload(Diagram diagram, Map<String, Object> fields) {
+}
@@ -0,0 +1,84 @@
+package org.plema.models;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+public class DiagramWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static String toJson(Diagram diagram, Map<String, ?> fields) {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, ?> field : fields.entrySet()) {
+                generator.writeFieldName(field.getKey());
+                writeValue(generator, field.getValue());
+            }
+
+            generator.writeArrayFieldStart("variables");
+            for (Variable variable : diagram.variables()) {
+                generator.writeStartObject();
+                generator.writeStringField("name", variable.getName());
+                generator.writeStringField("type", variable.getType().name().toLowerCase());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("threads");
+            for (List<AbstractBlock> thread : diagram.threads()) {
+                generator.writeStartArray();
+                for (AbstractBlock block : thread) {
+                    writeBlock(generator, block);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    private static void writeBlock(JsonGenerator generator, AbstractBlock block) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", block.getId());
+        generator.writeStringField("type", block.getType().name().toLowerCase());
+        writeInteger(generator, "next", block.getNext());
+        if (block instanceof ExpressionBlock expressionBlock && expressionBlock.getExpression() != null) {
+            generator.writeStringField("expression", expressionBlock.getExpression());
+        }
+        if (block instanceof ConditionBlock conditionBlock) {
+            writeInteger(generator, "trueBranch", conditionBlock.getTrueBranch());
+            writeInteger(generator, "falseBranch", conditionBlock.getFalseBranch());
+        } else if (block instanceof WhileBlock whileBlock) {
+            writeInteger(generator, "body", whileBlock.getBody());
+        } else if (block instanceof InputBlock inputBlock && inputBlock.getVariableName() != null) {
+            generator.writeStringField("variable", inputBlock.getVariableName());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeInteger(JsonGenerator generator, String field, Integer value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Number number) {
+            generator.writeNumber(number.longValue());
+        } else if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.plema.models;
 
+import org.plema.BlockType;
 import org.plema.visitor.Visitor;
 
 public class EndBlock extends AbstractBlock {
@@ -8,10 +9,20 @@ public class EndBlock extends AbstractBlock {
     }
 
     @Override
-    public Integer doVisitor(Visitor v) {
+    public BlockType getType() {
+        return BlockType.END;
+    }
+
+    @Override
+    public <R> R doVisitor(Visitor<R> v) {
         return v.doEnd(this);
     }
 
+    @Override
+    EndBlock copy() {
+        return new Builder().id(id).next(next).build();
+    }
+
     public static class Builder extends AbstractBuilder<Builder> {
         @Override
         public EndBlock build() {
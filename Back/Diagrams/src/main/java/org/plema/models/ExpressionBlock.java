@@ -1,24 +1,39 @@
 package org.plema.models;
 
+import org.plema.visitor.runner.Expression;
+
 public abstract class ExpressionBlock extends AbstractBlock {
     protected final String expression;
+    protected final Expression compiledExpression;
 
     protected ExpressionBlock(ExpressionBuilder<?> builder) {
         super(builder);
         this.expression = builder.expression;
+        this.compiledExpression = builder.compiledExpression;
     }
 
     public String getExpression() {
         return expression;
     }
 
+    public Expression getCompiledExpression() {
+        return compiledExpression;
+    }
+
     public abstract static class ExpressionBuilder<T extends ExpressionBuilder<T>> extends AbstractBuilder<T> {
         private String expression;
+        private Expression compiledExpression;
 
         @SuppressWarnings("unchecked")
         public T expression(String expression) {
             this.expression = expression;
             return (T) this;
         }
+
+        @SuppressWarnings("unchecked")
+        public T compiledExpression(Expression compiledExpression) {
+            this.compiledExpression = compiledExpression;
+            return (T) this;
+        }
     }
 }
\ No newline at end of file
@@ -1,17 +1,27 @@
 package org.plema.models;
 
+import org.plema.BlockType;
 import org.plema.visitor.Visitor;
 
 public class InputBlock extends AbstractBlock {
     private final Variable variable;
+    private final String variableName;
 
     private InputBlock(Builder builder) {
         super(builder);
         this.variable = builder.variable;
+        this.variableName = builder.variableName != null || builder.variable == null
+                ? builder.variableName
+                : builder.variable.getName();
     }
 
     @Override
-    public Integer doVisitor(Visitor v) {
+    public BlockType getType() {
+        return BlockType.INPUT;
+    }
+
+    @Override
+    public <R> R doVisitor(Visitor<R> v) {
         return v.doInput(this);
     }
 
@@ -19,8 +29,18 @@ public class InputBlock extends AbstractBlock {
         return variable;
     }
 
+    public String getVariableName() {
+        return variableName;
+    }
+
+    @Override
+    InputBlock copy() {
+        return new Builder().id(id).next(next).variable(variable).variableName(variableName).build();
+    }
+
     public static class Builder extends AbstractBuilder<Builder> {
         private Variable variable;
+        private String variableName;
 
         public Builder variable(Variable variable) {
             if (variable != null) {
@@ -29,6 +49,11 @@ public class InputBlock extends AbstractBlock {
             return this;
         }
 
+        public Builder variableName(String variableName) {
+            this.variableName = variableName;
+            return this;
+        }
+
         @Override
         public InputBlock build() {
             return new InputBlock(this);
@@ -0,0 +1,27 @@
+package org.plema.models;
+
+import io.vertx.core.json.JsonObject;
+
+public record PatchOperation(String op, Integer thread, BlockFields block, Integer blockId, String name,
+                             String type) {
+
+    public static PatchOperation fromJson(JsonObject json) {
+        try {
+            String op = json.getString("op");
+            if (op == null) {
+                throw new IllegalArgumentException("Patch operation needs an op");
+            }
+            JsonObject block = json.getJsonObject("block");
+            return new PatchOperation(
+                    op,
+                    json.getInteger("thread"),
+                    block == null ? null : BlockFields.fromJson(block),
+                    json.getInteger("id"),
+                    json.getString("name"),
+                    json.getString("type")
+            );
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException("Invalid patch operation: " + json.encode());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.plema.models;
 
+import org.plema.BlockType;
 import org.plema.visitor.Visitor;
 
 public class PrintBlock extends ExpressionBlock {
@@ -8,10 +9,20 @@ public class PrintBlock extends ExpressionBlock {
     }
 
     @Override
-    public Integer doVisitor(Visitor v) {
+    public BlockType getType() {
+        return BlockType.PRINT;
+    }
+
+    @Override
+    public <R> R doVisitor(Visitor<R> v) {
         return v.doPrint(this);
     }
 
+    @Override
+    PrintBlock copy() {
+        return new Builder().id(id).next(next).expression(expression).compiledExpression(compiledExpression).build();
+    }
+
     public static class Builder extends ExpressionBuilder<Builder> {
         @Override
         public PrintBlock build() {
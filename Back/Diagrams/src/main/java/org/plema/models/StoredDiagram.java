@@ -0,0 +1,4 @@
+package org.plema.models;
+
+public record StoredDiagram(String id, int version, Diagram diagram, String digest) {
+}
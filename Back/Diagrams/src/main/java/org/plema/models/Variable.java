@@ -5,15 +5,18 @@ import org.plema.DataType;
 public class Variable {
     private final String name;
     private final DataType type;
+    private final int slot;
 
-    public Variable(String name, DataType type) {
+    public Variable(String name, DataType type, int slot) {
         this.name = name;
         this.type = type;
+        this.slot = slot;
     }
 
     private Variable(Builder builder) {
         this.name = builder.name;
         this.type = builder.type;
+        this.slot = builder.slot;
     }
 
     public String getName() {
@@ -24,9 +27,14 @@ public class Variable {
         return type;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
     public static class Builder {
         private String name;
         private DataType type;
+        private int slot;
 
         public Builder name(String name) {
             this.name = name;
@@ -38,6 +46,11 @@ public class Variable {
             return this;
         }
 
+        public Builder slot(int slot) {
+            this.slot = slot;
+            return this;
+        }
+
         public Variable build() {
             return new Variable(this);
         }
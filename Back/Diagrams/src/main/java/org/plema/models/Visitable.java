@@ -3,5 +3,5 @@ package org.plema.models;
 import org.plema.visitor.Visitor;
 
 public interface Visitable {
-    Integer doVisitor(Visitor v);
+    <R> R doVisitor(Visitor<R> v);
 }
@@ -1,9 +1,13 @@
 package org.plema.models;
 
+import org.plema.BlockType;
 import org.plema.visitor.Visitor;
 
+import java.util.Map;
+
 public class WhileBlock extends ExpressionBlock {
     private final Integer body;
+    private AbstractBlock bodyBlock;
 
     private WhileBlock(Builder builder) {
         super(builder);
@@ -11,7 +15,12 @@ public class WhileBlock extends ExpressionBlock {
     }
 
     @Override
-    public Integer doVisitor(Visitor v) {
+    public BlockType getType() {
+        return BlockType.WHILE;
+    }
+
+    @Override
+    public <R> R doVisitor(Visitor<R> v) {
         return v.doWhile(this);
     }
 
@@ -19,6 +28,27 @@ public class WhileBlock extends ExpressionBlock {
         return body;
     }
 
+    public AbstractBlock getBodyBlock() {
+        return bodyBlock;
+    }
+
+    @Override
+    WhileBlock copy() {
+        return new Builder()
+                .id(id)
+                .next(next)
+                .expression(expression)
+                .compiledExpression(compiledExpression)
+                .body(body)
+                .build();
+    }
+
+    @Override
+    void link(Map<Integer, AbstractBlock> blocks) {
+        super.link(blocks);
+        bodyBlock = resolve(blocks, body);
+    }
+
     public static class Builder extends ExpressionBuilder<Builder> {
         private Integer body;
 
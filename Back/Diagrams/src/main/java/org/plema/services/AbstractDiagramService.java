@@ -8,7 +8,8 @@ import java.util.Map;
 
 abstract class AbstractDiagramService {
 
-    protected void executeBlocks(List<AbstractBlock> blocks, Map<Integer, AbstractBlock> blockMap, Visitor visitor) {
+    protected void executeBlocks(List<AbstractBlock> blocks, Map<Integer, AbstractBlock> blockMap,
+                                 Visitor<Integer> visitor) {
         Integer currentBlockId = 1;
         for (AbstractBlock block : blocks) {
             blockMap.put(block.getId(), block);
@@ -0,0 +1,51 @@
+package org.plema.services;
+
+import org.plema.vertx.WebSocketMessageSender;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class BatchMessageSender implements WebSocketMessageSender {
+    private final Deque<String> inputs;
+    private final List<String> output = new ArrayList<>();
+    private boolean inputExhausted;
+
+    public BatchMessageSender(List<String> inputs) {
+        this.inputs = new ArrayDeque<>(inputs);
+    }
+
+    @Override
+    public synchronized void sendMessage(String sessionId, String message) {
+        output.add(message);
+    }
+
+    @Override
+    public synchronized String sendAndWaitResult(String sessionId, String type, String message) {
+        String input = inputs.poll();
+        if (input == null) {
+            inputExhausted = true;
+            throw new IllegalStateException("No input left for prompt " + message);
+        }
+        return input;
+    }
+
+    @Override
+    public CompletableFuture<String> requestResult(String sessionId, String type, String message) {
+        try {
+            return CompletableFuture.completedFuture(sendAndWaitResult(sessionId, type, message));
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public synchronized boolean isInputExhausted() {
+        return inputExhausted;
+    }
+
+    public synchronized List<String> getOutput() {
+        return new ArrayList<>(output);
+    }
+}
@@ -0,0 +1,76 @@
+package org.plema.services;
+
+import org.plema.visitor.runner.GreenThreadScheduler;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Step budget and outcome of a headless run, shared by all of its threads.
+ */
+class BoundedRun {
+    private final long maxSteps;
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private volatile boolean stepLimitReached;
+    private volatile boolean timedOut;
+
+    BoundedRun(long maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    long getMaxSteps() {
+        return maxSteps;
+    }
+
+    long getSteps() {
+        return steps.get();
+    }
+
+    /**
+     * Adds steps taken by one thread and returns whether the run may keep going.
+     */
+    boolean addSteps(long count) {
+        if (steps.addAndGet(count) >= maxSteps) {
+            stepLimitReached = true;
+        }
+        return !stepLimitReached;
+    }
+
+    void fail(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        error.compareAndSet(null, cause);
+    }
+
+    Throwable getError() {
+        return error.get();
+    }
+
+    void timeOut() {
+        timedOut = true;
+    }
+
+    void record(GreenThreadScheduler scheduler) {
+        steps.addAndGet(scheduler.getSteps());
+        stepLimitReached |= scheduler.isStepLimitReached();
+        if (scheduler.getError() != null) {
+            fail(scheduler.getError());
+        }
+    }
+
+    String status(boolean inputExhausted) {
+        if (getError() != null) {
+            return "error";
+        }
+        if (timedOut) {
+            return "timeout";
+        }
+        if (stepLimitReached) {
+            return "step_limit";
+        }
+        return inputExhausted ? "input_exhausted" : "completed";
+    }
+}
@@ -0,0 +1,98 @@
+package org.plema.services;
+
+import org.plema.dtos.CodeCacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class CodeCache {
+    private static final long MAX_BYTES = Long.getLong("diagrams.codeCacheBytes", 32L * 1024 * 1024);
+
+    private final Map<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CodeCache() {
+        this(MAX_BYTES);
+    }
+
+    public CodeCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized String get(String key) {
+        String code = entries.get(key);
+        if (code == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return code;
+    }
+
+    public synchronized void put(String key, String code) {
+        long size = sizeOf(key, code);
+        if (size > maxBytes) {
+            return;
+        }
+
+        String previous = entries.put(key, code);
+        if (previous != null) {
+            bytes -= sizeOf(key, previous);
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<String, String>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            Map.Entry<String, String> entry = eldest.next();
+            bytes -= sizeOf(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public PendingEntry begin(String key) {
+        return new PendingEntry(key);
+    }
+
+    public synchronized CodeCacheStats getStats() {
+        return new CodeCacheStats(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+
+    private static long sizeOf(String key, String code) {
+        return 2L * (key.length() + code.length());
+    }
+
+    public class PendingEntry implements Consumer<String> {
+        private final String key;
+        private StringBuilder code = new StringBuilder();
+
+        private PendingEntry(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void accept(String chunk) {
+            if (code == null) {
+                return;
+            }
+            if (sizeOf(key, "") + 2L * (code.length() + chunk.length()) > maxBytes) {
+                code = null;
+                return;
+            }
+            code.append(chunk);
+        }
+
+        public void commit() {
+            if (code != null) {
+                put(key, code.toString());
+            }
+        }
+    }
+}
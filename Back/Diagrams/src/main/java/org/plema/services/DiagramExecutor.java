@@ -0,0 +1,104 @@
+package org.plema.services;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class DiagramExecutor {
+    private static final int MAX_THREADS = Integer.getInteger("diagrams.maxThreads", 10_000);
+    private static final int MAX_PLATFORM_THREADS = Integer.getInteger("diagrams.maxPlatformThreads", 256);
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    public DiagramExecutor() {
+        this(MAX_THREADS, MAX_PLATFORM_THREADS);
+    }
+
+    DiagramExecutor(int maxThreads, int maxPlatformThreads) {
+        ExecutorService virtualExecutor = createVirtualExecutor();
+        this.executor = virtualExecutor != null
+                ? virtualExecutor
+                : createPlatformExecutor(Math.min(maxThreads, maxPlatformThreads), maxThreads);
+        this.permits = new Semaphore(maxThreads);
+    }
+
+    public CompletableFuture<Void> runAll(List<Runnable> tasks) {
+        List<Supplier<CompletableFuture<Void>>> suppliers = new ArrayList<>();
+        for (Runnable task : tasks) {
+            suppliers.add(() -> {
+                task.run();
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+        return runAllAsync(suppliers);
+    }
+
+    public CompletableFuture<Void> runAllAsync(List<Supplier<CompletableFuture<Void>>> tasks) {
+        if (!permits.tryAcquire(tasks.size())) {
+            throw new RejectedExecutionException("Too many diagram threads are running, try again later");
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            for (Supplier<CompletableFuture<Void>> task : tasks) {
+                futures.add(CompletableFuture.supplyAsync(task, executor)
+                        .thenCompose(completion -> completion)
+                        .whenComplete((result, throwable) -> permits.release()));
+            }
+        } catch (RejectedExecutionException e) {
+            permits.release(tasks.size() - futures.size());
+            throw e;
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new));
+    }
+
+    public CompletableFuture<Void> runHolding(int threads, Runnable task) {
+        if (!permits.tryAcquire(threads)) {
+            throw new RejectedExecutionException("Too many diagram threads are running, try again later");
+        }
+        try {
+            return CompletableFuture.runAsync(task, executor).whenComplete((result, throwable) -> permits.release(threads));
+        } catch (RejectedExecutionException e) {
+            permits.release(threads);
+            throw e;
+        }
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService createPlatformExecutor(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "diagram-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,134 @@
+package org.plema.services;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.plema.models.Diagram;
+import org.plema.models.DiagramDigest;
+import org.plema.models.DiagramParser;
+import org.plema.models.DiagramPatcher;
+import org.plema.models.DiagramUpload;
+import org.plema.models.DiagramWriter;
+import org.plema.models.PatchOperation;
+import org.plema.models.StoredDiagram;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DiagramStore {
+    private static final String STORE_FILE = System.getProperty("diagrams.storeFile", "diagrams-store.jsonl");
+
+    private final Vertx vertx;
+    private final AppendOnlyFile file;
+    private final Map<String, StoredDiagram> diagrams = new ConcurrentHashMap<>();
+
+    public DiagramStore(Vertx vertx) {
+        this(vertx, Path.of(STORE_FILE));
+    }
+
+    public DiagramStore(Vertx vertx, Path path) {
+        this.vertx = vertx;
+        this.file = new AppendOnlyFile(path);
+    }
+
+    public Future<Void> load() {
+        return vertx.executeBlocking(() -> {
+            file.forEachLine(this::loadLine);
+            return null;
+        });
+    }
+
+    public Future<StoredDiagram> create(Diagram diagram) {
+        return vertx.executeBlocking(() -> {
+            StoredDiagram stored = new StoredDiagram(UUID.randomUUID().toString(), 1, diagram,
+                    DiagramDigest.of(diagram));
+            append(stored);
+            diagrams.put(stored.id(), stored);
+            return stored;
+        });
+    }
+
+    public Future<StoredDiagram> patch(String id, Integer expectedVersion, JsonArray operations) {
+        List<PatchOperation> patchOperations = parseOperations(operations);
+        return vertx.executeBlocking(() -> diagrams.compute(id, (key, current) -> {
+            if (current == null) {
+                throw new NoSuchElementException("Diagram " + id + " not found");
+            }
+            if (expectedVersion != null && expectedVersion != current.version()) {
+                throw new IllegalStateException("Diagram " + id + " is at version " + current.version());
+            }
+            StoredDiagram patched = applyPatch(current, patchOperations);
+            file.append(new JsonObject()
+                    .put("patch", new JsonObject()
+                            .put("id", id)
+                            .put("version", patched.version())
+                            .put("operations", operations))
+                    .encode());
+            return patched;
+        }));
+    }
+
+    public StoredDiagram get(String id) {
+        return diagrams.get(id);
+    }
+
+    public String toJson(StoredDiagram stored) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", stored.id());
+        fields.put("version", stored.version());
+        return DiagramWriter.toJson(stored.diagram(), fields);
+    }
+
+    private void append(StoredDiagram stored) {
+        file.append(toJson(stored));
+    }
+
+    private static StoredDiagram applyPatch(StoredDiagram current, List<PatchOperation> operations) {
+        Diagram diagram = DiagramPatcher.apply(current.diagram(), operations);
+        return new StoredDiagram(current.id(), current.version() + 1, diagram, DiagramDigest.of(diagram));
+    }
+
+    private static List<PatchOperation> parseOperations(JsonArray operations) {
+        List<PatchOperation> patchOperations = new ArrayList<>();
+        for (Object operation : operations) {
+            if (!(operation instanceof JsonObject operationJson)) {
+                throw new IllegalArgumentException("Every patch operation must be an object");
+            }
+            patchOperations.add(PatchOperation.fromJson(operationJson));
+        }
+        return patchOperations;
+    }
+
+    private void loadLine(String line) {
+        try {
+            if (line.startsWith("{\"patch\":")) {
+                loadPatch(new JsonObject(line).getJsonObject("patch"));
+                return;
+            }
+            DiagramUpload upload = DiagramParser.parse(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)));
+            String id = (String) upload.fields().get("id");
+            int version = ((Number) upload.fields().get("version")).intValue();
+            StoredDiagram stored = new StoredDiagram(id, version, upload.diagram(), DiagramDigest.of(upload.diagram()));
+            diagrams.merge(id, stored, (current, loaded) -> loaded.version() > current.version() ? loaded : current);
+        } catch (RuntimeException e) {
+            System.err.println("Skipping unreadable diagram store entry: " + e.getMessage());
+        }
+    }
+
+    private void loadPatch(JsonObject patch) {
+        String id = patch.getString("id");
+        int version = patch.getInteger("version");
+        List<PatchOperation> operations = parseOperations(patch.getJsonArray("operations"));
+        diagrams.computeIfPresent(id, (key, current) ->
+                current.version() + 1 == version ? applyPatch(current, operations) : current);
+    }
+}
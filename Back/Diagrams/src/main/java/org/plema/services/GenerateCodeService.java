@@ -1,18 +1,50 @@
 package org.plema.services;
 
+import org.plema.dtos.CodeCacheStats;
 import org.plema.models.AbstractBlock;
 import org.plema.models.Diagram;
+import org.plema.models.DiagramDigest;
 import org.plema.models.Variable;
 import org.plema.visitor.BlocksCodeGenerator;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 public class GenerateCodeService extends AbstractDiagramService {
+    private static final long FRAGMENT_CACHE_BYTES = Long.getLong("diagrams.fragmentCacheBytes", 32L * 1024 * 1024);
+    private static final int GENERATOR_THREADS = Integer.getInteger("diagrams.generatorThreads",
+            Runtime.getRuntime().availableProcessors());
+
+    private static final CodeCache FRAGMENTS = new CodeCache(FRAGMENT_CACHE_BYTES);
+    private static final ForkJoinPool GENERATOR_POOL = new ForkJoinPool(GENERATOR_THREADS);
 
     public String generateCode(Diagram diagram) {
         StringBuilder code = new StringBuilder();
-        Map<Integer, AbstractBlock> blockMap = new HashMap<>();
+        join(generateCode(diagram, code::append, Runnable::run));
+        return code.toString();
+    }
+
+    public CompletableFuture<Void> generateCode(Diagram diagram, Consumer<String> output, Executor outputExecutor) {
+        return generateCode(diagram, output, outputExecutor, false);
+    }
+
+    String generateHostedCode(Diagram diagram) {
+        StringBuilder code = new StringBuilder();
+        join(generateCode(diagram, code::append, Runnable::run, true));
+        return code.toString();
+    }
+
+    private CompletableFuture<Void> generateCode(Diagram diagram, Consumer<String> output, Executor outputExecutor,
+                                                 boolean hosted) {
+        StringBuilder code = new StringBuilder();
+        List<CompletableFuture<String>> bodies = generateThreads(diagram, hosted);
 
         code.append("import java.util.Scanner;\n");
         code.append("import java.util.concurrent.locks.ReentrantLock;\n\n");
@@ -28,35 +60,91 @@ public class GenerateCodeService extends AbstractDiagramService {
 
         code.append("    static final Scanner scanner = new Scanner(System.in);\n");
         code.append("    static final ReentrantLock lock = new ReentrantLock();\n\n");
+        flush(code, output);
 
+        CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
         Map<Integer, String> generatedThreads = new HashMap<>();
         for (int i = 0; i < diagram.threads().size(); i++) {
-            var thread = diagram.threads().get(i);
             String threadName = "Task" + (i + 1);
             generatedThreads.put(i + 1, threadName);
-            code.append("    static class ").append(threadName).append(" extends Thread {\n");
-            code.append("        public void run() {\n");
-            code.append("            try {\n");
-            BlocksCodeGenerator blocksGenerator = new BlocksCodeGenerator(code, blockMap);
-            executeBlocks(thread, blockMap, blocksGenerator);
-            code.append("            } catch (Throwable t) {\n");
-            code.append("                System.err.println(t);\n");
-            code.append("            }\n");
-            code.append("        }\n");
-            code.append("    }\n\n");
-            blockMap.clear();
+            completion = completion.thenCombineAsync(bodies.get(i), (previous, body) -> {
+                code.append("    static class ").append(threadName).append(" extends Thread {\n");
+                code.append("        public void run() {\n");
+                code.append("            try {\n");
+                code.append(body);
+                if (hosted) {
+                    code.append("            } catch (java.util.NoSuchElementException e) {\n");
+                }
+                code.append("            } catch (Throwable t) {\n");
+                code.append("                System.err.println(t);\n");
+                code.append("            }\n");
+                code.append("        }\n");
+                code.append("    }\n\n");
+                flush(code, output);
+                return null;
+            }, outputExecutor);
         }
 
-        code.append("    public static void main(String[] args) {\n");
-        int counter = 1;
-        for (String thread : generatedThreads.values()) {
-            code.append("        Thread t").append(counter).append(" = new ").append(thread).append("();\n");
-            code.append("        t").append(counter).append(".start();\n");
-            counter++;
+        return completion.thenRunAsync(() -> {
+            code.append("    public static void main(String[] args) {\n");
+            int counter = 1;
+            for (String thread : generatedThreads.values()) {
+                code.append("        Thread t").append(counter).append(" = new ").append(thread).append("();\n");
+                code.append("        t").append(counter).append(".start();\n");
+                counter++;
+            }
+            code.append("    }\n}\n");
+            flush(code, output);
+        }, outputExecutor);
+    }
+
+    public CodeCacheStats getFragmentStats() {
+        return FRAGMENTS.getStats();
+    }
+
+    private List<CompletableFuture<String>> generateThreads(Diagram diagram, boolean hosted) {
+        List<CompletableFuture<String>> bodies = new ArrayList<>();
+        Map<String, CompletableFuture<String>> pending = new HashMap<>();
+
+        for (List<AbstractBlock> thread : diagram.threads()) {
+            String key = (hosted ? "hosted:" : "") + DiagramDigest.ofThread(diagram.variables(), thread);
+            CompletableFuture<String> body = pending.get(key);
+            if (body == null) {
+                String cached = FRAGMENTS.get(key);
+                body = cached != null
+                        ? CompletableFuture.completedFuture(cached)
+                        : CompletableFuture.supplyAsync(() -> generateThread(key, thread, hosted), GENERATOR_POOL);
+                pending.put(key, body);
+            }
+            bodies.add(body);
         }
-        code.append("    }\n}\n");
+        return bodies;
+    }
 
-        return code.toString();
+    private String generateThread(String key, List<AbstractBlock> thread, boolean hosted) {
+        StringBuilder code = new StringBuilder();
+        Map<Integer, AbstractBlock> blockMap = new HashMap<>();
+        executeBlocks(thread, blockMap, new BlocksCodeGenerator(code, blockMap, hosted));
+
+        String body = code.toString();
+        FRAGMENTS.put(key, body);
+        return body;
+    }
+
+    private static <T> T join(CompletableFuture<T> completion) {
+        try {
+            return completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void flush(StringBuilder code, Consumer<String> output) {
+        output.accept(code.toString());
+        code.setLength(0);
     }
 
 }
@@ -0,0 +1,172 @@
+package org.plema.services;
+
+import org.plema.compiler.CompiledClassLoader;
+import org.plema.compiler.InMemoryJavaCompiler;
+import org.plema.models.*;
+import org.plema.vertx.WebSocketInputStream;
+import org.plema.vertx.WebSocketMessageSender;
+import org.plema.vertx.WebSocketOutputStream;
+import org.plema.visitor.runner.InvalidExpression;
+import org.plema.visitor.runner.RpnHandler;
+
+import javax.lang.model.SourceVersion;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class JavaRunService {
+    private static final String MAIN_CLASS = "FlowchartThreads";
+    private static final String SYSTEM_SHIM = """
+            public final class System {
+                public static java.io.PrintStream out;
+                public static java.io.PrintStream err;
+                public static java.io.InputStream in;
+                public static java.util.function.Consumer<String> prompts;
+
+                private System() {}
+
+                public static void prompt(String variable) {
+                    prompts.accept(variable);
+                }
+            }
+            """;
+    private static final int CACHE_SIZE = 64;
+    private static final long RUN_TIMEOUT_SECONDS = Long.getLong("diagrams.javaRunTimeoutSeconds", 300);
+    private static final long INTERRUPT_GRACE_MILLIS = 1000;
+
+    private final GenerateCodeService generateCodeService = new GenerateCodeService();
+    private final InMemoryJavaCompiler compiler = new InMemoryJavaCompiler();
+    private final Map<String, Map<String, byte[]>> compiledCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, byte[]>> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    public void validate(Diagram diagram) {
+        if (!compiler.isAvailable()) {
+            throw new IllegalArgumentException("Java execution is not available on this server");
+        }
+
+        Map<String, Variable> variables = new HashMap<>();
+        for (Variable variable : diagram.variables()) {
+            if (!SourceVersion.isName(variable.getName()) || variable.getName().equals("System")) {
+                throw new IllegalArgumentException("Invalid variable name: " + variable.getName());
+            }
+            variables.put(variable.getName(), variable);
+        }
+
+        for (List<AbstractBlock> thread : diagram.threads()) {
+            for (AbstractBlock block : thread) {
+                if (block instanceof ExpressionBlock expressionBlock) {
+                    validateExpression(expressionBlock, variables);
+                }
+            }
+        }
+    }
+
+    private void validateExpression(ExpressionBlock block, Map<String, Variable> variables) {
+        String expression = block.getExpression();
+        if (expression == null || expression.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("Unsupported expression in block " + block.getId());
+        }
+
+        if (block.getCompiledExpression() instanceof InvalidExpression invalid) {
+            throw new IllegalArgumentException("Block " + block.getId() + ": " + invalid.getMessage());
+        }
+        if (block instanceof PrintBlock) {
+            RpnHandler.compile(expression, variables);
+        }
+    }
+
+    /**
+     * Runs the diagram as compiled Java and returns whether it finished before the deadline.
+     */
+    public boolean execute(Diagram diagram, WebSocketMessageSender ioHandler, String clientSocketId) {
+        Map<String, byte[]> classes = compile(generateCodeService.generateHostedCode(diagram));
+
+        PrintStream out = new PrintStream(new WebSocketOutputStream(ioHandler, clientSocketId), true,
+                StandardCharsets.UTF_8);
+        ThreadGroup group = new ThreadGroup("diagram-" + clientSocketId);
+
+        try {
+            CompiledClassLoader classLoader = new CompiledClassLoader(classes);
+            Class<?> system = classLoader.loadClass("System");
+            system.getField("out").set(null, out);
+            system.getField("err").set(null, out);
+            WebSocketInputStream in = new WebSocketInputStream(ioHandler, clientSocketId);
+            system.getField("in").set(null, in);
+            system.getField("prompts").set(null, (Consumer<String>) variable -> in.setPrompt(variable + ":"));
+
+            Class<?> mainClass = classLoader.loadClass(MAIN_CLASS);
+            Thread mainThread = new Thread(group, () -> {
+                try {
+                    mainClass.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+                } catch (InvocationTargetException e) {
+                    e.getCause().printStackTrace(out);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "diagram-main");
+            mainThread.start();
+
+            if (!awaitThreads(group, System.nanoTime() + TimeUnit.SECONDS.toNanos(RUN_TIMEOUT_SECONDS))) {
+                group.interrupt();
+                out.println("Execution timed out after " + RUN_TIMEOUT_SECONDS + " s");
+                awaitThreads(group, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERRUPT_GRACE_MILLIS));
+                return false;
+            }
+            return true;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to start compiled diagram", e);
+        } catch (InterruptedException e) {
+            group.interrupt();
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            out.flush();
+        }
+    }
+
+    private Map<String, byte[]> compile(String source) {
+        String key = hash(source);
+        Map<String, byte[]> classes = compiledCache.get(key);
+        if (classes == null) {
+            classes = compiler.compile(Map.of(MAIN_CLASS, source, "System", SYSTEM_SHIM));
+            compiledCache.put(key, classes);
+        }
+        return classes;
+    }
+
+    private static boolean awaitThreads(ThreadGroup group, long deadline) throws InterruptedException {
+        while (true) {
+            Thread[] threads = new Thread[group.activeCount() + 1];
+            int count = group.enumerate(threads);
+            if (count == 0) {
+                return true;
+            }
+            for (int i = 0; i < count; i++) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedJoin(threads[i], remaining);
+            }
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
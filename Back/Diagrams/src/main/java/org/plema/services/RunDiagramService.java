@@ -1,80 +1,320 @@
 package org.plema.services;
 
 import io.vertx.core.Future;
-import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
-import org.plema.Value;
+import org.plema.ExecutionMode;
+import org.plema.RunOptions;
+import org.plema.dtos.BatchRunResponse;
+import org.plema.dtos.VectorRunResponse;
+import org.plema.dtos.VectorRunResult;
 import org.plema.models.AbstractBlock;
 import org.plema.models.Diagram;
+import org.plema.models.InputBlock;
+import org.plema.models.Variable;
+import org.plema.models.WhileBlock;
 import org.plema.vertx.WebSocketHandler;
+import org.plema.vertx.WebSocketMessageSender;
+import org.plema.visitor.runner.BlockProfile;
 import org.plema.visitor.runner.BlocksCodeRunner;
+import org.plema.visitor.runner.ClosureThread;
+import org.plema.visitor.runner.Frame;
+import org.plema.visitor.runner.GreenThreadScheduler;
+import org.plema.visitor.runner.ProfilingBlocksCodeRunner;
+import org.plema.visitor.runner.SwitchInterpreter;
+import org.plema.visitor.runner.ClosureTreeBuilder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class RunDiagramService extends AbstractDiagramService {
+    private static final int TIER_UP_THRESHOLD = Integer.getInteger("diagrams.tierUpThreshold", 1000);
+    private static final int GREEN_QUANTUM = Integer.getInteger("diagrams.greenQuantum", 100);
+    private static final String BATCH_SESSION_ID = "batch";
+    private static final long BATCH_MAX_STEPS = Long.getLong("diagrams.batchMaxSteps", 10_000_000L);
+    private static final int STEP_CHUNK = 1024;
+    private static final int MAX_VECTORS = Integer.getInteger("diagrams.maxVectors", 10_000);
+    private static final long VECTOR_MAX_STEPS = Long.getLong("diagrams.vectorMaxSteps", 10_000_000L);
+    private static final long VECTOR_REQUEST_MAX_STEPS = Long.getLong("diagrams.vectorRequestMaxSteps", 100_000_000L);
+    private static final int VECTOR_PARALLELISM = Integer.getInteger("diagrams.vectorParallelism",
+            Runtime.getRuntime().availableProcessors());
 
     private final Vertx vertx;
+    private final JavaRunService javaRunService = new JavaRunService();
+    private final DiagramExecutor executor = new DiagramExecutor();
 
     public RunDiagramService(Vertx vertx) {
         this.vertx = vertx;
     }
 
-    public Future<Void> runDiagram(Diagram diagram, String clientSocketId) {
-        Promise<Void> promise = Promise.promise();
+    public Future<List<Map<Integer, BlockProfile>>> runDiagram(Diagram diagram, String clientSocketId,
+                                                              RunOptions options) {
+        Frame frame = Frame.create(diagram.variables(), diagram.threads().size());
+        CompletableFuture<List<Map<Integer, BlockProfile>>> completion = execute(diagram, frame,
+                WebSocketHandler.getInstance(), clientSocketId, options, null);
+        return Future.fromCompletionStage(completion, vertx.getOrCreateContext());
+    }
+
+    public Future<BatchRunResponse> runBatch(Diagram diagram, List<String> inputs, RunOptions options) {
+        BatchMessageSender sender = new BatchMessageSender(inputs);
+        Frame frame = Frame.create(diagram.variables(), diagram.threads().size());
+        BoundedRun run = new BoundedRun(BATCH_MAX_STEPS);
+        CompletableFuture<BatchRunResponse> completion = execute(diagram, frame, sender, BATCH_SESSION_ID, options, run)
+                .thenApply(profile -> new BatchRunResponse(
+                        run.status(sender.isInputExhausted()),
+                        run.getError() == null ? null : run.getError().getMessage(),
+                        sender.getOutput(),
+                        options.mode() == ExecutionMode.JAVA ? null : readVariables(diagram, frame),
+                        profile
+                ));
+        return Future.fromCompletionStage(completion, vertx.getOrCreateContext());
+    }
+
+    public Future<VectorRunResponse> runVectors(Diagram diagram, List<List<String>> vectors) {
+        if (vectors.size() > MAX_VECTORS) {
+            throw new IllegalArgumentException("Too many input vectors: " + vectors.size() + " (max " + MAX_VECTORS + ")");
+        }
+
+        List<SwitchInterpreter> programs = new ArrayList<>();
+        for (AbstractBlock entry : diagram.entries()) {
+            programs.add(new SwitchInterpreter(entry));
+        }
 
-        vertx.executeBlocking(blockingPromise -> {
-            try {
-                executeBlocks(diagram, clientSocketId);
-                blockingPromise.complete();
-            } catch (Exception e) {
-                blockingPromise.fail(e);
+        long maxSteps = Math.min(VECTOR_MAX_STEPS, VECTOR_REQUEST_MAX_STEPS / Math.max(1, vectors.size()));
+        VectorRunResult[] results = new VectorRunResult[vectors.size()];
+        AtomicInteger nextVector = new AtomicInteger();
+        Supplier<CompletableFuture<Void>> worker =
+                () -> runVectors(diagram, programs, vectors, results, nextVector, maxSteps);
+
+        CompletableFuture<VectorRunResponse> completion = executor
+                .runAllAsync(Collections.nCopies(Math.min(vectors.size(), VECTOR_PARALLELISM), worker))
+                .thenApply(result -> new VectorRunResponse(Arrays.asList(results)));
+        return Future.fromCompletionStage(completion, vertx.getOrCreateContext());
+    }
+
+    private CompletableFuture<Void> runVectors(Diagram diagram, List<SwitchInterpreter> programs,
+                                               List<List<String>> vectors, VectorRunResult[] results,
+                                               AtomicInteger nextVector, long maxSteps) {
+        while (true) {
+            int index = nextVector.getAndIncrement();
+            if (index >= vectors.size()) {
+                return CompletableFuture.completedFuture(null);
             }
-        }, asyncResult -> {
-            if (asyncResult.succeeded()) {
-                promise.complete();
-            } else {
-                promise.fail(asyncResult.cause());
+            CompletableFuture<Void> run = runVector(diagram, programs, vectors.get(index), maxSteps)
+                    .thenAccept(result -> results[index] = result);
+            if (!run.isDone() || run.isCompletedExceptionally()) {
+                return run.thenCompose(result -> runVectors(diagram, programs, vectors, results, nextVector, maxSteps));
             }
+        }
+    }
+
+    private CompletableFuture<VectorRunResult> runVector(Diagram diagram, List<SwitchInterpreter> programs,
+                                                         List<String> inputs, long maxSteps) {
+        BatchMessageSender sender = new BatchMessageSender(inputs);
+        Frame frame = Frame.create(diagram.variables(), 1);
+        BoundedRun run = new BoundedRun(maxSteps);
+        GreenThreadScheduler scheduler = new GreenThreadScheduler(GREEN_QUANTUM, null, maxSteps, executor.getExecutor());
+        for (SwitchInterpreter program : programs) {
+            scheduler.addThread(program, new BlocksCodeRunner(frame, sender, BATCH_SESSION_ID));
+        }
+
+        return scheduler.execute().thenApply(result -> {
+            run.record(scheduler);
+            String error = run.getError() == null ? null : run.getError().getMessage();
+            return new VectorRunResult(run.status(sender.isInputExhausted()), error, sender.getOutput(),
+                    readVariables(diagram, frame), run.getSteps());
         });
+    }
 
-        return promise.future();
+    private CompletableFuture<List<Map<Integer, BlockProfile>>> execute(Diagram diagram, Frame frame,
+                                                                        WebSocketMessageSender ioHandler,
+                                                                        String clientSocketId, RunOptions options,
+                                                                        BoundedRun run) {
+        ExecutionMode mode = options.mode();
+        if (options.profile()) {
+            if (mode == ExecutionMode.JAVA) {
+                throw new IllegalArgumentException("Profiling is not available in java mode");
+            }
+            return executeProfiled(diagram, frame, ioHandler, clientSocketId, run);
+        }
+
+        // A bounded run counts steps, which the closure tier cannot do, and runs switch threads on the
+        // scheduler, which can.
+        CompletableFuture<Void> completion;
+        if (mode == ExecutionMode.JAVA) {
+            javaRunService.validate(diagram);
+            // The waiting pool thread, the program's main thread and one thread per diagram thread.
+            completion = executor.runHolding(diagram.threads().size() + 2,
+                    () -> executeJava(diagram, ioHandler, clientSocketId, run));
+        } else if (mode == ExecutionMode.GREEN || (run != null && mode == ExecutionMode.SWITCH)) {
+            Long seed = mode == ExecutionMode.GREEN ? options.seed() : null;
+            completion = executeGreen(diagram, frame, ioHandler, clientSocketId, seed, run);
+        } else {
+            completion = executeBlocks(diagram, createRunners(diagram, frame, ioHandler, clientSocketId),
+                    run == null ? mode : ExecutionMode.INTERPRETED, run);
+        }
+        return completion.thenApply(result -> null);
     }
 
-    private void executeBlocks(Diagram diagram, String clientSocketId) {
-        Map<String, Value> variableMap = new HashMap<>();
-        for (var variable : diagram.variables()) {
-            variableMap.put(variable.getName(), new Value(variable.getType().getDefaultValue(), variable.getType()));
+    private CompletableFuture<List<Map<Integer, BlockProfile>>> executeProfiled(Diagram diagram, Frame frame,
+                                                                                WebSocketMessageSender ioHandler,
+                                                                                String clientSocketId,
+                                                                                BoundedRun run) {
+        List<ProfilingBlocksCodeRunner> runners = new ArrayList<>();
+        for (int i = 0; i < diagram.threads().size(); i++) {
+            runners.add(new ProfilingBlocksCodeRunner(frame, ioHandler, clientSocketId));
         }
+        return executeBlocks(diagram, runners, ExecutionMode.INTERPRETED, run)
+                .thenApply(result -> runners.stream().map(ProfilingBlocksCodeRunner::getProfile).toList());
+    }
 
-        CompletableFuture<?>[] futures = new CompletableFuture[diagram.threads().size()];
+    private static List<BlocksCodeRunner> createRunners(Diagram diagram, Frame frame,
+                                                        WebSocketMessageSender ioHandler, String clientSocketId) {
+        List<BlocksCodeRunner> runners = new ArrayList<>();
+        for (int i = 0; i < diagram.threads().size(); i++) {
+            runners.add(new BlocksCodeRunner(frame, ioHandler, clientSocketId));
+        }
+        return runners;
+    }
+
+    private static Map<String, Object> readVariables(Diagram diagram, Frame frame) {
+        Map<String, Object> variables = new LinkedHashMap<>();
+        for (Variable variable : diagram.variables()) {
+            variables.put(variable.getName(), frame.get(variable.getSlot()).value());
+        }
+        return variables;
+    }
 
-        int i = 0;
-        for (var thread : diagram.threads()) {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+    private CompletableFuture<Void> executeBlocks(Diagram diagram, List<? extends BlocksCodeRunner> runners,
+                                                  ExecutionMode mode, BoundedRun run) {
+        List<Supplier<CompletableFuture<Void>>> tasks = new ArrayList<>();
+        for (int i = 0; i < diagram.threads().size(); i++) {
+            List<AbstractBlock> thread = diagram.threads().get(i);
+            AbstractBlock entry = diagram.entries().get(i);
+            BlocksCodeRunner blocksCodeRunner = runners.get(i);
+            tasks.add(() -> {
+                CompletableFuture<Void> completion;
                 try {
-                    Map<Integer, AbstractBlock> blockMap = new HashMap<>();
-                    BlocksCodeRunner blocksCodeRunner = new BlocksCodeRunner(
-                            variableMap,
-                            WebSocketHandler.getInstance(),
-                            clientSocketId
-                    );
-                    executeBlocks(thread, blockMap, blocksCodeRunner);
+                    completion = executeThread(thread, entry, blocksCodeRunner, mode, run);
                 } catch (Exception e) {
-                    System.err.println("Error executing thread: " + e.getMessage());
-                    e.printStackTrace();
+                    completion = CompletableFuture.failedFuture(e);
                 }
+                return completion.exceptionally(throwable -> {
+                    if (run != null) {
+                        run.fail(throwable);
+                    }
+                    System.err.println("Error executing thread: " + throwable.getMessage());
+                    throwable.printStackTrace();
+                    return null;
+                });
             });
-            futures[i++] = future;
         }
 
+        return executor.runAllAsync(tasks)
+                .whenComplete((result, throwable) -> System.out.println("All threads have completed execution."));
+    }
+
+    private CompletableFuture<Void> executeGreen(Diagram diagram, Frame frame, WebSocketMessageSender ioHandler,
+                                                 String clientSocketId, Long seed, BoundedRun run) {
+        long maxSteps = run == null ? Long.MAX_VALUE : run.getMaxSteps();
+        GreenThreadScheduler scheduler = new GreenThreadScheduler(GREEN_QUANTUM, seed, maxSteps, executor.getExecutor());
+        for (AbstractBlock entry : diagram.entries()) {
+            BlocksCodeRunner blocksCodeRunner = new BlocksCodeRunner(
+                    frame,
+                    ioHandler,
+                    clientSocketId
+            );
+            scheduler.addThread(new SwitchInterpreter(entry), blocksCodeRunner);
+        }
+
+        return executor.runAllAsync(List.of(scheduler::execute))
+                .whenComplete((result, throwable) -> {
+                    if (run != null) {
+                        run.record(scheduler);
+                    }
+                    System.out.println("All threads have completed execution.");
+                });
+    }
+
+    private void executeJava(Diagram diagram, WebSocketMessageSender ioHandler, String clientSocketId,
+                             BoundedRun run) {
         try {
-            CompletableFuture.allOf(futures).get();
-            System.out.println("All threads have completed execution.");
-        } catch (Exception e) {
-            System.err.println("Error waiting for threads to complete: " + e.getMessage());
-            e.printStackTrace();
+            if (!javaRunService.execute(diagram, ioHandler, clientSocketId) && run != null) {
+                run.timeOut();
+            }
+        } catch (IllegalArgumentException e) {
+            if (run != null) {
+                run.fail(e);
+            }
+            ioHandler.sendMessage(clientSocketId, e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> executeThread(List<AbstractBlock> thread, AbstractBlock entry,
+                                                  BlocksCodeRunner runner, ExecutionMode mode, BoundedRun run) {
+        if (mode == ExecutionMode.SWITCH) {
+            return new SwitchInterpreter(entry).executeAsync(runner, executor.getExecutor());
+        }
+        if (mode == ExecutionMode.INTERPRETED) {
+            return executeInterpreted(entry, runner, null, null, run);
+        }
+
+        Map<Integer, AbstractBlock> blockMap = new HashMap<>();
+        for (AbstractBlock block : thread) {
+            blockMap.put(block.getId(), block);
         }
+
+        ClosureTreeBuilder closures = new ClosureTreeBuilder(blockMap);
+        if (mode == ExecutionMode.CLOSURES && runClosures(closures, entry.getId(), runner)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return executeInterpreted(entry, runner, closures, new HashMap<>(), null);
+    }
+
+    private CompletableFuture<Void> executeInterpreted(AbstractBlock start, BlocksCodeRunner runner,
+                                                       ClosureTreeBuilder closures, Map<Integer, Integer> loopHits,
+                                                       BoundedRun run) {
+        AbstractBlock block = start;
+        long steps = 0;
+        while (block != null) {
+            if (run != null && ++steps == STEP_CHUNK) {
+                if (!run.addSteps(steps)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                steps = 0;
+            }
+            if (block instanceof InputBlock inputBlock) {
+                if (run != null && !run.addSteps(steps)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return runner.doInputAsync(inputBlock).thenComposeAsync(next -> next == null
+                        ? CompletableFuture.completedFuture(null)
+                        : executeInterpreted(next, runner, closures, loopHits, run), executor.getExecutor());
+            }
+            if (closures != null && block instanceof WhileBlock
+                    && loopHits.merge(block.getId(), 1, Integer::sum) == TIER_UP_THRESHOLD
+                    && runClosures(closures, block.getId(), runner)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            block = block.doVisitor(runner);
+        }
+        if (run != null) {
+            run.addSteps(steps);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private boolean runClosures(ClosureTreeBuilder closures, Integer startId, BlocksCodeRunner runner) {
+        Optional<ClosureThread> thread = closures.tryBuild(startId);
+        thread.ifPresent(closureThread -> closureThread.execute(runner));
+        return thread.isPresent();
     }
 }
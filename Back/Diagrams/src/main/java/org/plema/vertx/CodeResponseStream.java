@@ -0,0 +1,39 @@
+package org.plema.vertx;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.Json;
+
+import java.util.function.Consumer;
+
+public class CodeResponseStream implements Consumer<String> {
+    private final HttpServerResponse response;
+    private final String message;
+
+    public CodeResponseStream(HttpServerResponse response, String message) {
+        this.response = response;
+        this.message = message;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        if (!response.headWritten()) {
+            response.setStatusCode(201)
+                    .setChunked(true)
+                    .putHeader("Content-Type", "application/json")
+                    .write("{\"message\":" + Json.encode(message) + ",\"code\":\"");
+        }
+        if (!chunk.isEmpty()) {
+            response.write(new String(JsonStringEncoder.getInstance().quoteAsString(chunk)));
+        }
+    }
+
+    public void end() {
+        accept("");
+        response.end("\"}");
+    }
+
+    public boolean isStarted() {
+        return response.headWritten();
+    }
+}
@@ -4,28 +4,93 @@ import io.vertx.core.Vertx;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
 import org.plema.controllers.DiagramController;
+import org.plema.middlewares.CodeCacheMiddleware;
+import org.plema.middlewares.DiagramSourceMiddleware;
 import org.plema.middlewares.JsonToBlocksMiddleware;
+import org.plema.middlewares.StoredDiagramMiddleware;
+import org.plema.services.CodeCache;
+import org.plema.services.DiagramStore;
 
 public class DiagramRouter {
+    private static final long MAX_BODY_BYTES = Long.getLong("diagrams.maxBodyBytes", 10L * 1024 * 1024);
+
     private final DiagramController diagramController;
+    private final CodeCache codeCache;
+    private final DiagramStore diagramStore;
 
-    public DiagramRouter(DiagramController diagramController) {
+    public DiagramRouter(DiagramController diagramController, CodeCache codeCache, DiagramStore diagramStore) {
         this.diagramController = diagramController;
+        this.codeCache = codeCache;
+        this.diagramStore = diagramStore;
     }
 
     public Router createRouter(Vertx vertx) {
         Router router = Router.router(vertx);
 
         router.post("/generate-code")
-                .handler(BodyHandler.create())
+                .handler(bodyHandler())
+                .handler(new DiagramSourceMiddleware())
+                .handler(new CodeCacheMiddleware(codeCache))
                 .handler(new JsonToBlocksMiddleware())
                 .handler(diagramController::generateCode);
 
+        router.get("/generate-code/cache")
+                .handler(diagramController::codeCacheStats);
+
+        router.get("/generate-code/cache/fragments")
+                .handler(diagramController::fragmentCacheStats);
+
         router.post("/run")
-                .handler(BodyHandler.create())
+                .handler(bodyHandler())
+                .handler(new DiagramSourceMiddleware())
+                .handler(new JsonToBlocksMiddleware())
+                .handler(diagramController::runDiagram);
+
+        router.post("/run/batch")
+                .handler(bodyHandler())
+                .handler(new DiagramSourceMiddleware())
+                .handler(new JsonToBlocksMiddleware())
+                .handler(diagramController::runBatch);
+
+        router.post("/run/vectors")
+                .handler(bodyHandler())
+                .handler(new DiagramSourceMiddleware())
+                .handler(new JsonToBlocksMiddleware())
+                .handler(diagramController::runVectors);
+
+        router.post("/diagrams")
+                .handler(bodyHandler())
+                .handler(new DiagramSourceMiddleware())
                 .handler(new JsonToBlocksMiddleware())
+                .handler(diagramController::storeDiagram);
+
+        router.get("/diagrams/:id")
+                .handler(diagramController::getDiagram);
+
+        router.patch("/diagrams/:id")
+                .handler(bodyHandler())
+                .handler(diagramController::patchDiagram);
+
+        router.post("/diagrams/:id/code")
+                .handler(bodyHandler())
+                .handler(new StoredDiagramMiddleware(diagramStore))
+                .handler(new CodeCacheMiddleware(codeCache))
+                .handler(diagramController::generateCode);
+
+        router.post("/diagrams/:id/run")
+                .handler(bodyHandler())
+                .handler(new StoredDiagramMiddleware(diagramStore))
                 .handler(diagramController::runDiagram);
 
+        router.post("/diagrams/:id/run/batch")
+                .handler(bodyHandler())
+                .handler(new StoredDiagramMiddleware(diagramStore))
+                .handler(diagramController::runBatch);
+
         return router;
     }
+
+    private static BodyHandler bodyHandler() {
+        return BodyHandler.create().setBodyLimit(MAX_BODY_BYTES);
+    }
 }
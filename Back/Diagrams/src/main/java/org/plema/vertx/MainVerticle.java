@@ -6,6 +6,8 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.CorsHandler;
 import org.plema.controllers.DiagramController;
+import org.plema.services.CodeCache;
+import org.plema.services.DiagramStore;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -19,6 +21,7 @@ public class MainVerticle extends AbstractVerticle {
         Set<HttpMethod> allowedMethods = new HashSet<>();
         allowedMethods.add(HttpMethod.GET);
         allowedMethods.add(HttpMethod.POST);
+        allowedMethods.add(HttpMethod.PATCH);
         allowedMethods.add(HttpMethod.OPTIONS);
 
         router.route().handler(CorsHandler.create()
@@ -28,16 +31,20 @@ public class MainVerticle extends AbstractVerticle {
                 .allowedHeader("Authorization")
                 .allowCredentials(true));
 
-        Router diagramRouter = new DiagramRouter(new DiagramController(vertx)).createRouter(vertx);
+        CodeCache codeCache = new CodeCache();
+        DiagramStore diagramStore = new DiagramStore(vertx);
+        DiagramController diagramController = new DiagramController(vertx, codeCache, diagramStore);
+        Router diagramRouter = new DiagramRouter(diagramController, codeCache, diagramStore).createRouter(vertx);
         router.route("/*").subRouter(diagramRouter);
 
         WebSocketLifecycleHandler webSocketHandler = WebSocketHandler.getInstance();
 
-        vertx.createHttpServer()
-                .webSocketHandshakeHandler(webSocketHandler::handleConnect)
-                .webSocketHandler(webSocketHandler::handleMessage)
-                .requestHandler(router)
-                .listen(8888)
+        diagramStore.load()
+                .compose(loaded -> vertx.createHttpServer()
+                        .webSocketHandshakeHandler(webSocketHandler::handleConnect)
+                        .webSocketHandler(webSocketHandler::handleMessage)
+                        .requestHandler(router)
+                        .listen(8888))
                 .onSuccess(server -> {
                     System.out.println("HTTP server started on port " + server.actualPort());
                     startPromise.complete();
@@ -10,9 +10,11 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class WebSocketHandler implements WebSocketLifecycleHandler, WebSocketMessageSender {
+    private static final long INPUT_TIMEOUT_SECONDS = Long.getLong("diagrams.inputTimeoutSeconds", 300);
+
     private final Map<String, ServerWebSocket> sessions = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, CompletableFuture<String>> pendingResponses = new ConcurrentHashMap<>();
 
@@ -38,15 +40,28 @@ public class WebSocketHandler implements WebSocketLifecycleHandler, WebSocketMes
     public String sendAndWaitResult(String sessionId, String type, String message)
             throws ExecutionException, InterruptedException {
         ServerWebSocket webSocket = sessions.get(sessionId);
-        if (webSocket != null) {
-            CompletableFuture<String> future = new CompletableFuture<>();
-            pendingResponses.put(sessionId, future);
-
-            webSocket.writeTextMessage(JsonObject.mapFrom(new WebSocketReceive(sessionId, "input", message)).encode());
+        if (webSocket == null) {
+            throw new IllegalStateException("WebSocket session not connected for sessionId: " + sessionId);
+        }
+        return requestResult(sessionId, type, message).get();
+    }
 
-            return future.get();
+    @Override
+    public CompletableFuture<String> requestResult(String sessionId, String type, String message) {
+        ServerWebSocket webSocket = sessions.get(sessionId);
+        if (webSocket == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("WebSocket session not connected for sessionId: " + sessionId));
         }
-        throw new IllegalStateException("WebSocket session not connected for sessionId: " + sessionId);
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        pendingResponses.put(sessionId, future);
+        future.orTimeout(INPUT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .whenComplete((result, throwable) -> pendingResponses.remove(sessionId, future));
+
+        webSocket.writeTextMessage(JsonObject.mapFrom(new WebSocketReceive(sessionId, type, message)).encode());
+
+        return future;
     }
 
     @Override
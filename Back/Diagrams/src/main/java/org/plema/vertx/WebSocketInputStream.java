@@ -0,0 +1,69 @@
+package org.plema.vertx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+public class WebSocketInputStream extends InputStream {
+    private final WebSocketMessageSender sender;
+    private final String sessionId;
+    private final ThreadLocal<String> prompt = ThreadLocal.withInitial(() -> "Input:");
+    private byte[] buffer = new byte[0];
+    private int position;
+
+    public WebSocketInputStream(WebSocketMessageSender sender, String sessionId) {
+        this.sender = sender;
+        this.sessionId = sessionId;
+    }
+
+    public void setPrompt(String prompt) {
+        this.prompt.set(prompt);
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(len, buffer.length - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public synchronized int available() {
+        return buffer.length - position;
+    }
+
+    private boolean fill() throws IOException {
+        if (position < buffer.length) {
+            return true;
+        }
+        try {
+            String input = sender.sendAndWaitResult(sessionId, "input", prompt.get());
+            buffer = (input + "\n").getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to get input", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for input", e);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package org.plema.vertx;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public interface WebSocketMessageSender {
     void sendMessage(String sessionId, String message);
     String sendAndWaitResult(String sessionId, String type, String message) throws ExecutionException, InterruptedException;
+    CompletableFuture<String> requestResult(String sessionId, String type, String message);
 }
\ No newline at end of file
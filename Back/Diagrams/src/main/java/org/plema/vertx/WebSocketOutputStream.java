@@ -0,0 +1,37 @@
+package org.plema.vertx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class WebSocketOutputStream extends OutputStream {
+    private final WebSocketMessageSender sender;
+    private final String sessionId;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    public WebSocketOutputStream(WebSocketMessageSender sender, String sessionId) {
+        this.sender = sender;
+        this.sessionId = sessionId;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            flushLine();
+        } else if (b != '\r') {
+            line.write(b);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (line.size() > 0) {
+            flushLine();
+        }
+    }
+
+    private void flushLine() {
+        sender.sendMessage(sessionId, line.toString(StandardCharsets.UTF_8));
+        line.reset();
+    }
+}
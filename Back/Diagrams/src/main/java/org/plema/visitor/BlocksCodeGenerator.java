@@ -5,14 +5,27 @@ import org.plema.models.*;
 
 import java.util.*;
 
-public class BlocksCodeGenerator implements Visitor {
+public class BlocksCodeGenerator implements Visitor<Integer> {
+
+    private static final String[] INDENTS = new String[32];
+
+    static {
+        for (int i = 0; i < INDENTS.length; i++) {
+            INDENTS[i] = " ".repeat(16 + 4 * i);
+        }
+    }
 
     private final Map<Integer, AbstractBlock> blockMap;
     private final StringBuilder code;
+    private final boolean hosted;
 
     private Integer conditionLevel = 0;
     private final Stack<ConditionInfo> conditionStack = new Stack<>();
-    private final List<Integer> loopBlockIds = new ArrayList<>();
+    private final Set<Integer> loopBlockIds = new HashSet<>();
+    private final Map<Integer, Integer> endIds = new HashMap<>();
+    private final Map<Integer, Integer> starts = new HashMap<>();
+    private final Map<Integer, Integer> visits = new HashMap<>();
+    private ControlFlowGraph graph;
 
     private static class ConditionInfo {
         Integer conditionId;
@@ -29,35 +42,50 @@ public class BlocksCodeGenerator implements Visitor {
     }
 
     public BlocksCodeGenerator(StringBuilder stringBuilder, Map<Integer, AbstractBlock> blockMap) {
+        this(stringBuilder, blockMap, false);
+    }
+
+    /**
+     * @param hosted generate code for the server to run: inputs name their variable in the prompt and loops give
+     *               up their thread once the run is interrupted
+     */
+    public BlocksCodeGenerator(StringBuilder stringBuilder, Map<Integer, AbstractBlock> blockMap, boolean hosted) {
         this.blockMap = blockMap;
         this.code = stringBuilder;
+        this.hosted = hosted;
     }
 
     @Override
     public Integer doPrint(PrintBlock printBlock) {
-        code.append("    ".repeat(Math.max(0, conditionLevel)));
-        code.append("                System.out.println(").append(printBlock.getExpression()).append(");\n");
+        if (isRevisit(printBlock)) {
+            return closeCycle(printBlock);
+        }
+        code.append(indent()).append("System.out.println(").append(printBlock.getExpression()).append(");\n");
         return printBlock.getNext();
     }
 
     @Override
     public Integer doAssign(AssignBlock assignBlock) {
-        code.append("    ".repeat(Math.max(0, conditionLevel)));
-        code.append("                ").append(assignBlock.getExpression()).append(";\n");
+        if (isRevisit(assignBlock)) {
+            return closeCycle(assignBlock);
+        }
+        code.append(indent()).append(assignBlock.getExpression()).append(";\n");
         return assignBlock.getNext();
     }
 
     @Override
     public Integer doCondition(ConditionBlock conditionBlock) {
-        code.append("    ".repeat(Math.max(0, conditionLevel)));
-        code.append("                if (").append(conditionBlock.getExpression()).append(") {\n");
+        if (isRevisit(conditionBlock)) {
+            return closeCycle(conditionBlock);
+        }
+        code.append(indent()).append("if (").append(conditionBlock.getExpression()).append(") {\n");
 
         conditionLevel++;
 
         Integer trueBranchId = conditionBlock.getTrueBranch();
         Integer falseBranchId = conditionBlock.getFalseBranch();
 
-        Integer endId = findEndBlockFor(conditionBlock.getId());
+        Integer endId = findEndBlockFor(conditionBlock);
 
         conditionStack.push(new ConditionInfo(
                 conditionBlock.getId(),
@@ -72,10 +100,13 @@ public class BlocksCodeGenerator implements Visitor {
     @Override
     public Integer doWhile(WhileBlock whileBlock) {
         if (!loopBlockIds.contains(whileBlock.getId())) {
-            code.append("    ".repeat(Math.max(0, conditionLevel)));
-            code.append("                while (").append(whileBlock.getExpression()).append(") {\n");
+            if (isRevisit(whileBlock)) {
+                return closeCycle(whileBlock);
+            }
+            code.append(indent()).append("while (").append(whileBlock.getExpression()).append(") {\n");
             loopBlockIds.add(whileBlock.getId());
             conditionLevel++;
+            appendInterruptCheck();
             return whileBlock.getBody();
         } else {
             loopBlockIds.remove(whileBlock.getId());
@@ -85,21 +116,19 @@ public class BlocksCodeGenerator implements Visitor {
 
     @Override
     public Integer doEnd(EndBlock endBlock) {
-        code.append("    ".repeat(Math.max(0, conditionLevel)));
         conditionLevel--;
-        code.delete(code.length() - 4, code.length());
 
-        if (!conditionStack.isEmpty() && conditionStack.peek().endId.equals(endBlock.getId())) {
+        if (!conditionStack.isEmpty() && endBlock.getId().equals(conditionStack.peek().endId)) {
             ConditionInfo info = conditionStack.pop();
 
             if (blockMap.containsKey(info.falseBranchId)) {
-                code.append("                } else {\n");
+                code.append(indent()).append("} else {\n");
                 conditionLevel++;
                 return info.falseBranchId;
             }
-            code.append("                }\n");
+            code.append(indent()).append("}\n");
         } else {
-            code.append("                }\n");
+            code.append(indent()).append("}\n");
         }
 
         return endBlock.getNext();
@@ -107,8 +136,13 @@ public class BlocksCodeGenerator implements Visitor {
 
     @Override
     public Integer doInput(InputBlock inputBlock) {
-        code.append("    ".repeat(Math.max(0, conditionLevel)));
-        code.append("                ").append(inputBlock.getVariable().getName());
+        if (isRevisit(inputBlock)) {
+            return closeCycle(inputBlock);
+        }
+        if (hosted) {
+            code.append(indent()).append("System.prompt(\"").append(inputBlock.getVariable().getName()).append("\");\n");
+        }
+        code.append(indent()).append(inputBlock.getVariable().getName());
         DataType varType = inputBlock.getVariable().getType();
 
         switch (varType) {
@@ -121,64 +155,102 @@ public class BlocksCodeGenerator implements Visitor {
         return inputBlock.getNext();
     }
 
-    private Integer findEndBlockFor(Integer blockId) {
-        AbstractBlock block = blockMap.get(blockId);
-        if (block instanceof ConditionBlock conditionBlock) {
+    /**
+     * Whether control jumps back to a block already generated outside any condition or loop. Blocks shared by
+     * nested branches are generated once per branch, up to a bound that stops cycles through nested code.
+     */
+    private boolean isRevisit(AbstractBlock block) {
+        boolean topLevel = conditionLevel == 0 && conditionStack.isEmpty() && loopBlockIds.isEmpty();
+        if (topLevel && starts.containsKey(block.getId())) {
+            return true;
+        }
+        if (topLevel) {
+            starts.put(block.getId(), code.length());
+        }
+        if (visits.merge(block.getId(), 1, Integer::sum) > blockMap.size()) {
+            throw new IllegalArgumentException("Block " + block.getId()
+                    + " is re-entered from inside a condition or loop and cannot be generated as Java");
+        }
+        return false;
+    }
 
-            Set<Integer> seenInTrue = new HashSet<>();
-            Set<Integer> seenInFalse = new HashSet<>();
+    /**
+     * Wraps the code generated since the given block in an endless loop, for a thread whose flow jumps back to a
+     * block it has already run. Nothing after the loop can run, so generation of the thread stops here.
+     */
+    private Integer closeCycle(AbstractBlock block) {
+        int start = starts.get(block.getId());
+        String body = code.substring(start);
+        code.setLength(start);
+        code.append(indent()).append("while (true) {\n");
+        conditionLevel++;
+        appendInterruptCheck();
+        body.lines().forEach(line -> code.append("    ").append(line).append('\n'));
+        conditionLevel--;
+        code.append(indent()).append("}\n");
+        return null;
+    }
 
-            Integer current = conditionBlock.getTrueBranch();
-            while (blockMap.containsKey(current) && !seenInTrue.contains(current)) {
-                seenInTrue.add(current);
-                AbstractBlock currentBlock = blockMap.get(current);
-                if (currentBlock instanceof EndBlock) {
-                    return current;
-                }
+    private void appendInterruptCheck() {
+        if (hosted) {
+            code.append(indent()).append("if (Thread.currentThread().isInterrupted()) return;\n");
+        }
+    }
 
-                current = currentBlock.getNext();
-                if (current == null) break;
-            }
+    private String indent() {
+        int level = Math.max(0, conditionLevel);
+        return level < INDENTS.length ? INDENTS[level] : " ".repeat(16 + 4 * level);
+    }
 
-            current = conditionBlock.getFalseBranch();
-            while (blockMap.containsKey(current) && !seenInFalse.contains(current)) {
-                seenInFalse.add(current);
-                AbstractBlock currentBlock = blockMap.get(current);
-                if (currentBlock instanceof EndBlock) {
-                    return current;
-                }
+    private Integer findEndBlockFor(ConditionBlock conditionBlock) {
+        if (endIds.containsKey(conditionBlock.getId())) {
+            return endIds.get(conditionBlock.getId());
+        }
 
-                current = currentBlock.getNext();
-                if (current == null) break;
-            }
+        Integer mergeId = graph().immediatePostDominator(conditionBlock.getId());
+        Integer endId = firstEndFrom(mergeId != null ? mergeId : conditionBlock.getTrueBranch());
+        endIds.put(conditionBlock.getId(), endId);
+        return endId;
+    }
 
-            for (Integer id : seenInTrue) {
-                if (seenInFalse.contains(id)) {
-                    return id;
-                }
+    private Integer firstEndFrom(Integer blockId) {
+        Integer current = blockId;
+        while (blockMap.containsKey(current)) {
+            AbstractBlock block = blockMap.get(current);
+            if (block instanceof EndBlock) {
+                return current;
             }
-        } else if (block instanceof WhileBlock whileBlock) {
-            return whileBlock.getNext();
-        }
 
-        for (Map.Entry<Integer, AbstractBlock> entry : blockMap.entrySet()) {
-            if (entry.getValue() instanceof EndBlock && !isAssignedToOtherStructure(entry.getKey(), blockId)) {
-                return entry.getKey();
+            if (block instanceof ConditionBlock conditionBlock) {
+                Integer nestedEndId = findEndBlockFor(conditionBlock);
+                current = nestedEndId == null ? null : after(nestedEndId);
+            } else if (block instanceof WhileBlock whileBlock) {
+                if (loopBlockIds.contains(current)) {
+                    return null;
+                }
+                Integer loopEndId = whileBlock.getNext();
+                current = blockMap.get(loopEndId) instanceof EndBlock ? after(loopEndId) : loopEndId;
+            } else {
+                current = after(current);
             }
         }
 
         return null;
     }
 
-    private boolean isAssignedToOtherStructure(Integer endBlockId, Integer excludeBlockId) {
-        for (Map.Entry<Integer, AbstractBlock> entry : blockMap.entrySet()) {
-            if (!entry.getKey().equals(excludeBlockId)) {
-                AbstractBlock block = entry.getValue();
-                if (block instanceof WhileBlock && ((WhileBlock) block).getNext().equals(endBlockId)) {
-                    return true;
-                }
-            }
+    /**
+     * The block that control always reaches next, or the plain successor for blocks in a cycle that never
+     * reaches the end of the thread, where post-dominators are undefined.
+     */
+    private Integer after(Integer blockId) {
+        Integer postDominator = graph().immediatePostDominator(blockId);
+        return postDominator != null || graph().reachesExit(blockId) ? postDominator : blockMap.get(blockId).getNext();
+    }
+
+    private ControlFlowGraph graph() {
+        if (graph == null) {
+            graph = new ControlFlowGraph(blockMap);
         }
-        return false;
+        return graph;
     }
 }
\ No newline at end of file
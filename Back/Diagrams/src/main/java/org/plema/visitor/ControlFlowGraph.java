@@ -0,0 +1,143 @@
+package org.plema.visitor;
+
+import org.plema.models.*;
+
+import java.util.*;
+
+public class ControlFlowGraph {
+    private final Map<Integer, Integer> indexes = new HashMap<>();
+    private final Integer[] ids;
+    private final int[][] successors;
+    private final int[] postDominators;
+
+    public ControlFlowGraph(Map<Integer, AbstractBlock> blockMap) {
+        int size = blockMap.size();
+        ids = new Integer[size];
+        int index = 0;
+        for (Integer id : blockMap.keySet()) {
+            ids[index] = id;
+            indexes.put(id, index++);
+        }
+
+        successors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            List<Integer> targets = successorsOf(blockMap.get(ids[i]));
+            successors[i] = new int[targets.size()];
+            for (int j = 0; j < targets.size(); j++) {
+                successors[i][j] = indexes.getOrDefault(targets.get(j), size);
+            }
+        }
+
+        postDominators = computePostDominators(size);
+    }
+
+    public Integer immediatePostDominator(Integer blockId) {
+        Integer index = indexes.get(blockId);
+        if (index == null || postDominators[index] < 0 || postDominators[index] == ids.length) {
+            return null;
+        }
+        return ids[postDominators[index]];
+    }
+
+    public boolean reachesExit(Integer blockId) {
+        Integer index = indexes.get(blockId);
+        return index == null || postDominators[index] >= 0;
+    }
+
+    public static List<Integer> successorsOf(AbstractBlock block) {
+        List<Integer> targets = new ArrayList<>(2);
+        if (block instanceof ConditionBlock conditionBlock) {
+            targets.add(conditionBlock.getTrueBranch());
+            targets.add(conditionBlock.getFalseBranch());
+        } else if (block instanceof WhileBlock whileBlock) {
+            targets.add(whileBlock.getBody());
+            targets.add(whileBlock.getNext());
+        } else {
+            targets.add(block.getNext());
+        }
+        return targets;
+    }
+
+    private int[] computePostDominators(int size) {
+        int exit = size;
+
+        int[] predecessorCounts = new int[size + 1];
+        for (int[] targets : successors) {
+            for (int target : targets) {
+                predecessorCounts[target]++;
+            }
+        }
+        int[][] predecessors = new int[size + 1][];
+        for (int i = 0; i <= size; i++) {
+            predecessors[i] = new int[predecessorCounts[i]];
+            predecessorCounts[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int target : successors[i]) {
+                predecessors[target][predecessorCounts[target]++] = i;
+            }
+        }
+
+        int[] postOrder = new int[size + 1];
+        Arrays.fill(postOrder, -1);
+        int[] reversePostOrder = new int[size + 1];
+        int count = 0;
+
+        boolean[] visited = new boolean[size + 1];
+        int[] stack = new int[size + 1];
+        int[] cursor = new int[size + 1];
+        int depth = 0;
+        stack[depth++] = exit;
+        visited[exit] = true;
+        while (depth > 0) {
+            int node = stack[depth - 1];
+            if (cursor[node] < predecessors[node].length) {
+                int next = predecessors[node][cursor[node]++];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    stack[depth++] = next;
+                }
+            } else {
+                depth--;
+                postOrder[node] = count;
+                reversePostOrder[size - count] = node;
+                count++;
+            }
+        }
+
+        int[] dominators = new int[size + 1];
+        Arrays.fill(dominators, -1);
+        dominators[exit] = exit;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = size - count + 2; i <= size; i++) {
+                int node = reversePostOrder[i];
+                int candidate = -1;
+                for (int successor : successors[node]) {
+                    if (dominators[successor] < 0) continue;
+                    candidate = candidate < 0 ? successor : intersect(successor, candidate, dominators, postOrder);
+                }
+                if (candidate >= 0 && dominators[node] != candidate) {
+                    dominators[node] = candidate;
+                    changed = true;
+                }
+            }
+        }
+
+        return dominators;
+    }
+
+    private static int intersect(int a, int b, int[] dominators, int[] postOrder) {
+        while (a != b) {
+            while (postOrder[a] < postOrder[b]) {
+                a = dominators[a];
+            }
+            while (postOrder[b] < postOrder[a]) {
+                b = dominators[b];
+            }
+        }
+        return a;
+    }
+}
@@ -2,11 +2,11 @@ package org.plema.visitor;
 
 import org.plema.models.*;
 
-public interface Visitor {
-    Integer doPrint(PrintBlock printBlock);
-    Integer doAssign(AssignBlock assignBlock);
-    Integer doCondition(ConditionBlock conditionBlock);
-    Integer doWhile(WhileBlock whileBlock);
-    Integer doEnd(EndBlock endBlock);
-    Integer doInput(InputBlock inputBlock);
+public interface Visitor<R> {
+    R doPrint(PrintBlock printBlock);
+    R doAssign(AssignBlock assignBlock);
+    R doCondition(ConditionBlock conditionBlock);
+    R doWhile(WhileBlock whileBlock);
+    R doEnd(EndBlock endBlock);
+    R doInput(InputBlock inputBlock);
 }
@@ -0,0 +1,4 @@
+package org.plema.visitor.runner;
+
+public record BlockProfile(long hits, long nanos, long expressionNanos) {
+}
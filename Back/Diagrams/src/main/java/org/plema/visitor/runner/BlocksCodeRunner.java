@@ -1,165 +1,109 @@
 package org.plema.visitor.runner;
 
-import org.plema.DataType;
-import org.plema.Value;
 import org.plema.models.*;
 import org.plema.vertx.WebSocketMessageSender;
 import org.plema.visitor.Visitor;
 
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
-public class BlocksCodeRunner implements Visitor {
-    private final Map<String, Value> variables;
+public class BlocksCodeRunner implements Visitor<AbstractBlock> {
+    private final Frame frame;
     private final WebSocketMessageSender ioHandler;
     private final String clientId;
 
-    public BlocksCodeRunner(Map<String, Value> variables, WebSocketMessageSender ioHandler, String clientId) {
-        this.variables = variables;
+    public BlocksCodeRunner(Frame frame, WebSocketMessageSender ioHandler, String clientId) {
+        this.frame = frame;
         this.ioHandler = ioHandler;
         this.clientId = clientId;
     }
 
     @Override
-    public Integer doPrint(PrintBlock printBlock) {
-        String expression = printBlock.getExpression();
-        String evaluated = replaceVariablesWithValues(expression, variables);
-        ioHandler.sendMessage(clientId, evaluated);
-        return printBlock.getNext();
+    public AbstractBlock doPrint(PrintBlock printBlock) {
+        print(expressionOf(printBlock).evaluateString(frame));
+        return printBlock.getNextBlock();
     }
 
     @Override
-    public Integer doAssign(AssignBlock assignBlock) {
-        String[] parts = assignBlock.getExpression().split("=", 2);
-        String varName = parts[0].trim();
-        if (!variables.containsKey(varName)) {
-            throw new IllegalArgumentException("Variable " + varName + " not found");
+    public AbstractBlock doAssign(AssignBlock assignBlock) {
+        if (assignBlock.isSelfReferencing()) {
+            frame.update(assignBlock.getTarget().getSlot(), expressionOf(assignBlock));
+        } else {
+            frame.assign(assignBlock.getTarget().getSlot(), expressionOf(assignBlock));
         }
-        Value value = RpnHandler.evaluateExpression(parts[1].trim(), variables);
-        variables.put(varName, value);
-        return assignBlock.getNext();
+        return assignBlock.getNextBlock();
     }
 
     @Override
-    public Integer doCondition(ConditionBlock conditionBlock) {
-        String condition = conditionBlock.getExpression();
-        boolean result = RpnHandler.evaluateCondition(condition, variables);
-        return result ? conditionBlock.getTrueBranch() : conditionBlock.getFalseBranch();
+    public AbstractBlock doCondition(ConditionBlock conditionBlock) {
+        boolean result = expressionOf(conditionBlock).evaluateBoolean(frame);
+        return result ? conditionBlock.getTrueBlock() : conditionBlock.getFalseBlock();
     }
 
     @Override
-    public Integer doWhile(WhileBlock whileBlock) {
-        String condition = whileBlock.getExpression();
-        if (RpnHandler.evaluateCondition(condition, variables)) {
-            return whileBlock.getBody();
+    public AbstractBlock doWhile(WhileBlock whileBlock) {
+        if (expressionOf(whileBlock).evaluateBoolean(frame)) {
+            return whileBlock.getBodyBlock();
         } else {
-            return whileBlock.getNext();
+            return whileBlock.getNextBlock();
         }
     }
 
     @Override
-    public Integer doEnd(EndBlock endBlock) {
-        return endBlock.getNext();
+    public AbstractBlock doEnd(EndBlock endBlock) {
+        return endBlock.getNextBlock();
     }
 
     @Override
-    public Integer doInput(InputBlock inputBlock) {
+    public AbstractBlock doInput(InputBlock inputBlock) {
+        return readInput(inputBlock) ? inputBlock.getNextBlock() : null;
+    }
+
+    protected Expression expressionOf(ExpressionBlock block) {
+        return block.getCompiledExpression();
+    }
+
+    void print(String message) {
+        ioHandler.sendMessage(clientId, message);
+    }
+
+    boolean readInput(InputBlock inputBlock) {
         try {
-            String varName = inputBlock.getVariable().getName();
+            Variable variable = inputBlock.getVariable();
+            String varName = variable.getName();
 
             String promptMessage = varName + ":";
 
-            CompletableFuture<String> inputFuture = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return ioHandler.sendAndWaitResult(clientId, "input", promptMessage);
-                } catch (ExecutionException | InterruptedException e) {
-                    throw new RuntimeException("Failed to get input", e);
-                }
-            });
-
-            String input = inputFuture.get();
+            String input = ioHandler.sendAndWaitResult(clientId, "input", promptMessage);
 
-            Value value = isInteger(input) ? new Value(Integer.parseInt(input), DataType.INT) :
-                    isDouble(input) ? new Value(Double.parseDouble(input), DataType.DOUBLE) :
-                            new Value(input, DataType.STRING);
-            variables.put(varName, value);
+            frame.set(variable.getSlot(), RpnHandler.parseInput(input));
 
-            return inputBlock.getNext();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private String replaceVariablesWithValues(String expression, Map<String, Value> variables) {
-        StringBuilder result = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (int i = 0; i < expression.length(); i++) {
-            char c = expression.charAt(i);
-
-            if (c == '"') {
-                inQuotes = !inQuotes;
-                result.append(c);
-                continue;
-            }
-
-            if (inQuotes) {
-                result.append(c);
-                continue;
-            }
-
-            if (Character.isLetterOrDigit(c) || c == '_') {
-                if (i == 0 || !(Character.isLetterOrDigit(expression.charAt(i-1)) || expression.charAt(i-1) == '_')) {
-                    int start = i;
-
-                    while (i < expression.length() &&
-                            (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
-                        i++;
-                    }
-
-                    String variableName = expression.substring(start, i);
-                    i--;
-
-                    Value variableValue = variables.get(variableName);
-                    if (variableValue != null) {
-                        result.append(getValueAsString(variableValue));
-                    } else {
-                        result.append(variableName);
-                    }
-                } else {
-                    result.append(c);
-                }
-            } else {
-                result.append(c);
-            }
+            return false;
         }
-
-        return result.toString();
     }
 
-    private String getValueAsString(Value value) {
-        return switch (value.type()) {
-            case INT, DOUBLE, BOOLEAN -> String.valueOf(value.value());
-            case STRING -> "\"" + value.value() + "\"";
-        };
+    public CompletableFuture<AbstractBlock> doInputAsync(InputBlock inputBlock) {
+        return requestInput(inputBlock).thenApply(received -> received ? inputBlock.getNextBlock() : null);
     }
 
-    private static boolean isInteger(String str) {
-        try {
-            Integer.parseInt(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+    CompletableFuture<Boolean> requestInput(InputBlock inputBlock) {
+        Variable variable = inputBlock.getVariable();
+        if (variable == null) {
+            return CompletableFuture.completedFuture(false);
         }
+        return ioHandler.requestResult(clientId, "input", variable.getName() + ":")
+                .thenApply(input -> {
+                    frame.set(variable.getSlot(), RpnHandler.parseInput(input));
+                    return true;
+                })
+                .exceptionally(throwable -> false);
     }
 
-    private static boolean isDouble(String str) {
-        try {
-            Double.parseDouble(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+    Frame getFrame() {
+        return frame;
     }
 }
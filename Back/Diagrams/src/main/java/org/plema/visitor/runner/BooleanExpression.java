@@ -0,0 +1,35 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+@FunctionalInterface
+interface BooleanExpression extends Expression {
+    @Override
+    boolean evaluateBoolean(Frame frame);
+
+    @Override
+    default DataType getType() {
+        return DataType.BOOLEAN;
+    }
+
+    @Override
+    default int evaluateInt(Frame frame) {
+        return evaluateBoolean(frame) ? 1 : 0;
+    }
+
+    @Override
+    default double evaluateDouble(Frame frame) {
+        return evaluateBoolean(frame) ? 1.0 : 0.0;
+    }
+
+    @Override
+    default String evaluateString(Frame frame) {
+        return Boolean.toString(evaluateBoolean(frame));
+    }
+
+    @Override
+    default Value evaluate(Frame frame) {
+        return new Value(evaluateBoolean(frame), DataType.BOOLEAN);
+    }
+}
@@ -0,0 +1,6 @@
+package org.plema.visitor.runner;
+
+@FunctionalInterface
+interface ClosureStatement {
+    void execute(Frame frame, BlocksCodeRunner runner);
+}
@@ -0,0 +1,13 @@
+package org.plema.visitor.runner;
+
+public class ClosureThread {
+    private final ClosureStatement body;
+
+    ClosureThread(ClosureStatement body) {
+        this.body = body;
+    }
+
+    public void execute(BlocksCodeRunner runner) {
+        body.execute(runner.getFrame(), runner);
+    }
+}
@@ -0,0 +1,148 @@
+package org.plema.visitor.runner;
+
+import org.plema.models.*;
+import org.plema.visitor.ControlFlowGraph;
+
+import java.util.*;
+
+/**
+ * Turns a structured thread into a tree of Java lambdas, one per block, so hot loops skip the visitor dispatch
+ * and block lookups of the interpreter. No bytecode is generated: the tree still runs through megamorphic
+ * interface calls and evaluates the same expression trees as the interpreter. Threads with input or
+ * unstructured jumps are left to the interpreter.
+ */
+public class ClosureTreeBuilder {
+    private static final ClosureStatement NO_OP = (frame, runner) -> {};
+
+    private final Map<Integer, AbstractBlock> blockMap;
+    private final ControlFlowGraph graph;
+    private final Set<Integer> path = new HashSet<>();
+    private int budget;
+
+    public ClosureTreeBuilder(Map<Integer, AbstractBlock> blockMap) {
+        this.blockMap = blockMap;
+        this.graph = new ControlFlowGraph(blockMap);
+    }
+
+    public Optional<ClosureThread> tryBuild(Integer startId) {
+        path.clear();
+        budget = blockMap.size() * 4;
+        return buildSequence(startId, null, null).map(ClosureThread::new);
+    }
+
+    private Optional<ClosureStatement> buildSequence(Integer startId, Integer stopId, Integer loopHeaderId) {
+        List<ClosureStatement> statements = new ArrayList<>();
+        List<Integer> entered = new ArrayList<>();
+        Integer id = startId;
+
+        while (blockMap.containsKey(id) && !id.equals(stopId)) {
+            if (id.equals(loopHeaderId) || !path.add(id) || --budget < 0) {
+                return Optional.empty();
+            }
+            entered.add(id);
+
+            AbstractBlock block = blockMap.get(id);
+            Optional<ClosureStatement> statement;
+            if (block instanceof ConditionBlock conditionBlock) {
+                Integer mergeId = graph.immediatePostDominator(id);
+                statement = buildCondition(conditionBlock, mergeId, loopHeaderId);
+                id = mergeId;
+            } else if (block instanceof WhileBlock whileBlock) {
+                statement = buildWhile(whileBlock);
+                id = whileBlock.getNext();
+            } else {
+                statement = buildSimple(block);
+                id = block.getNext();
+            }
+            if (statement.isEmpty()) {
+                return Optional.empty();
+            }
+            if (statement.get() != NO_OP) {
+                statements.add(statement.get());
+            }
+        }
+
+        if (stopId != null && !stopId.equals(id)) {
+            return Optional.empty();
+        }
+        path.removeAll(entered);
+
+        return Optional.of(sequence(statements));
+    }
+
+    private Optional<ClosureStatement> buildCondition(ConditionBlock block, Integer mergeId, Integer loopHeaderId) {
+        Expression condition = block.getCompiledExpression();
+        Optional<ClosureStatement> trueBranch = buildSequence(block.getTrueBranch(), mergeId, loopHeaderId);
+        if (trueBranch.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<ClosureStatement> falseBranch = buildSequence(block.getFalseBranch(), mergeId, loopHeaderId);
+        if (falseBranch.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ClosureStatement whenTrue = trueBranch.get();
+        ClosureStatement whenFalse = falseBranch.get();
+        return Optional.of((frame, runner) -> {
+            if (condition.evaluateBoolean(frame)) {
+                whenTrue.execute(frame, runner);
+            } else {
+                whenFalse.execute(frame, runner);
+            }
+        });
+    }
+
+    private Optional<ClosureStatement> buildWhile(WhileBlock block) {
+        Expression condition = block.getCompiledExpression();
+        return buildSequence(block.getBody(), block.getId(), block.getId()).map(body -> (frame, runner) -> {
+            while (condition.evaluateBoolean(frame)) {
+                body.execute(frame, runner);
+            }
+        });
+    }
+
+    private Optional<ClosureStatement> buildSimple(AbstractBlock block) {
+        if (block instanceof AssignBlock assignBlock) {
+            return Optional.of(buildAssign(assignBlock));
+        } else if (block instanceof PrintBlock printBlock) {
+            return Optional.of((frame, runner) -> runner.doPrint(printBlock));
+        } else if (block instanceof EndBlock) {
+            return Optional.of(NO_OP);
+        }
+        return Optional.empty();
+    }
+
+    private ClosureStatement buildAssign(AssignBlock block) {
+        Expression expression = block.getCompiledExpression();
+        if (block.getTarget() == null) {
+            return (frame, runner) -> expression.evaluate(frame);
+        }
+
+        int slot = block.getTarget().getSlot();
+        if (block.isSelfReferencing()) {
+            return (frame, runner) -> frame.update(slot, expression);
+        }
+        return switch (block.getTarget().getType()) {
+            case INT -> (frame, runner) -> frame.setInt(slot, expression.evaluateInt(frame));
+            case DOUBLE -> (frame, runner) -> frame.setDouble(slot, expression.evaluateDouble(frame));
+            case BOOLEAN -> (frame, runner) -> frame.setBoolean(slot, expression.evaluateBoolean(frame));
+            case STRING -> (frame, runner) -> frame.setString(slot, expression.evaluateString(frame));
+        };
+    }
+
+    private static ClosureStatement sequence(List<ClosureStatement> statements) {
+        if (statements.isEmpty()) {
+            return NO_OP;
+        }
+        if (statements.size() == 1) {
+            return statements.get(0);
+        }
+
+        ClosureStatement[] steps = statements.toArray(new ClosureStatement[0]);
+        return (frame, runner) -> {
+            for (ClosureStatement step : steps) {
+                step.execute(frame, runner);
+            }
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.models.Variable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+
+/**
+ * Variable storage shared by the threads of one diagram.
+ * <p>
+ * Every read and write of a variable is atomic and volatile: all threads observe writes in a single order,
+ * and a value written by one thread is visible to the next read in any other thread. An assignment whose
+ * right-hand side reads its own target (for example {@code X = X + 1}) is an atomic read-modify-write: the
+ * right-hand side sees the same target value that the compare-and-set checks, and the assignment is retried if
+ * another thread changed the target in the meantime. Other variables read by that right-hand side are read
+ * once per attempt and are not locked. Anything spanning more than one assignment, such as reading two
+ * variables as a pair, is not atomic.
+ */
+class ConcurrentFrame extends Frame {
+    private static final VarHandle PRIMITIVES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle STRINGS = MethodHandles.arrayElementVarHandle(String[].class);
+
+    ConcurrentFrame(List<Variable> variables) {
+        super(variables);
+    }
+
+    private ConcurrentFrame(ConcurrentFrame shared) {
+        super(shared);
+    }
+
+    @Override
+    public int getInt(int slot) {
+        return (int) (long) PRIMITIVES.getVolatile(primitives, slot);
+    }
+
+    @Override
+    public double getDouble(int slot) {
+        return Double.longBitsToDouble((long) PRIMITIVES.getVolatile(primitives, slot));
+    }
+
+    @Override
+    public boolean getBoolean(int slot) {
+        return (long) PRIMITIVES.getVolatile(primitives, slot) != 0;
+    }
+
+    @Override
+    public String getString(int slot) {
+        return (String) STRINGS.getVolatile(strings, slot);
+    }
+
+    @Override
+    public void setInt(int slot, int value) {
+        PRIMITIVES.setVolatile(primitives, slot, (long) value);
+    }
+
+    @Override
+    public void setDouble(int slot, double value) {
+        PRIMITIVES.setVolatile(primitives, slot, Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public void setBoolean(int slot, boolean value) {
+        PRIMITIVES.setVolatile(primitives, slot, value ? 1L : 0L);
+    }
+
+    @Override
+    public void setString(int slot, String value) {
+        STRINGS.setVolatile(strings, slot, value);
+    }
+
+    @Override
+    public void update(int slot, Expression expression) {
+        if (types[slot] == DataType.STRING) {
+            String current;
+            String updated;
+            do {
+                current = getString(slot);
+                updated = expression.evaluateString(new PinnedFrame(this, slot, 0L, current));
+            } while (!STRINGS.compareAndSet(strings, slot, current, updated));
+            return;
+        }
+
+        long current;
+        long updated;
+        do {
+            current = (long) PRIMITIVES.getVolatile(primitives, slot);
+            Frame pinned = new PinnedFrame(this, slot, current, null);
+            updated = switch (types[slot]) {
+                case INT -> expression.evaluateInt(pinned);
+                case DOUBLE -> Double.doubleToRawLongBits(expression.evaluateDouble(pinned));
+                default -> expression.evaluateBoolean(pinned) ? 1L : 0L;
+            };
+        } while (!PRIMITIVES.compareAndSet(primitives, slot, current, updated));
+    }
+
+    /**
+     * A view of the shared variables in which the target of an update reads as the value the compare-and-set
+     * expects, so the new value is always computed from the value it replaces.
+     */
+    private static final class PinnedFrame extends ConcurrentFrame {
+        private final int slot;
+        private final long primitive;
+        private final String string;
+
+        private PinnedFrame(ConcurrentFrame shared, int slot, long primitive, String string) {
+            super(shared);
+            this.slot = slot;
+            this.primitive = primitive;
+            this.string = string;
+        }
+
+        @Override
+        public int getInt(int slot) {
+            return slot == this.slot ? (int) primitive : super.getInt(slot);
+        }
+
+        @Override
+        public double getDouble(int slot) {
+            return slot == this.slot ? Double.longBitsToDouble(primitive) : super.getDouble(slot);
+        }
+
+        @Override
+        public boolean getBoolean(int slot) {
+            return slot == this.slot ? primitive != 0 : super.getBoolean(slot);
+        }
+
+        @Override
+        public String getString(int slot) {
+            return slot == this.slot ? string : super.getString(slot);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+class ConstantExpression implements Expression {
+    private final Value value;
+    private final int intValue;
+    private final double doubleValue;
+    private final boolean booleanValue;
+
+    ConstantExpression(Value value) {
+        this.value = value;
+        this.booleanValue = value.asBoolean();
+        if (value.isString()) {
+            this.intValue = 0;
+            this.doubleValue = 0.0;
+        } else {
+            this.intValue = value.asInt();
+            this.doubleValue = value.asDouble();
+        }
+    }
+
+    @Override
+    public DataType getType() {
+        return value.type();
+    }
+
+    @Override
+    public int evaluateInt(Frame frame) {
+        return value.isString() ? value.asInt() : intValue;
+    }
+
+    @Override
+    public double evaluateDouble(Frame frame) {
+        return value.isString() ? value.asDouble() : doubleValue;
+    }
+
+    @Override
+    public boolean evaluateBoolean(Frame frame) {
+        return booleanValue;
+    }
+
+    @Override
+    public String evaluateString(Frame frame) {
+        return value.asString();
+    }
+
+    @Override
+    public Value evaluate(Frame frame) {
+        return value;
+    }
+}
@@ -0,0 +1,35 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+@FunctionalInterface
+interface DoubleExpression extends Expression {
+    @Override
+    double evaluateDouble(Frame frame);
+
+    @Override
+    default DataType getType() {
+        return DataType.DOUBLE;
+    }
+
+    @Override
+    default int evaluateInt(Frame frame) {
+        return (int) evaluateDouble(frame);
+    }
+
+    @Override
+    default boolean evaluateBoolean(Frame frame) {
+        return evaluateDouble(frame) != 0.0;
+    }
+
+    @Override
+    default String evaluateString(Frame frame) {
+        return Double.toString(evaluateDouble(frame));
+    }
+
+    @Override
+    default Value evaluate(Frame frame) {
+        return new Value(evaluateDouble(frame), DataType.DOUBLE);
+    }
+}
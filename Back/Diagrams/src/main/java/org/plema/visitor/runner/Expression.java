@@ -0,0 +1,18 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+public interface Expression {
+    DataType getType();
+
+    int evaluateInt(Frame frame);
+
+    double evaluateDouble(Frame frame);
+
+    boolean evaluateBoolean(Frame frame);
+
+    String evaluateString(Frame frame);
+
+    Value evaluate(Frame frame);
+}
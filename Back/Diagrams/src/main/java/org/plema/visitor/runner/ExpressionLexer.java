@@ -0,0 +1,220 @@
+package org.plema.visitor.runner;
+
+class ExpressionLexer {
+    enum TokenType {
+        INTEGER,
+        DOUBLE,
+        STRING,
+        IDENTIFIER,
+        OPERATOR,
+        LEFT_PAREN,
+        RIGHT_PAREN,
+        END
+    }
+
+    private final String source;
+    private int position;
+
+    private TokenType type;
+    private int start;
+    private int end;
+    private Operator operator;
+    private int intValue;
+    private double doubleValue;
+
+    ExpressionLexer(String source) {
+        this.source = source;
+    }
+
+    TokenType next() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+
+        start = position;
+        operator = null;
+
+        if (position >= source.length()) {
+            end = position;
+            return type = TokenType.END;
+        }
+
+        char c = source.charAt(position);
+
+        if (isDigit(c) || (c == '.' && position + 1 < source.length() && isDigit(source.charAt(position + 1)))) {
+            position = scanNumber(position);
+            if (position < source.length() && isIdentifierPart(source.charAt(position))) {
+                throw new IllegalArgumentException("Invalid number at position " + start + " in expression: " + source);
+            }
+            end = position;
+            return type;
+        }
+
+        if (isIdentifierStart(c)) {
+            do {
+                position++;
+            } while (position < source.length() && isIdentifierPart(source.charAt(position)));
+            end = position;
+            return type = TokenType.IDENTIFIER;
+        }
+
+        if (c == '"') {
+            int closing = source.indexOf('"', position + 1);
+            if (closing < 0) {
+                throw new IllegalArgumentException("Unterminated string literal in expression: " + source);
+            }
+            position = closing + 1;
+            end = position;
+            return type = TokenType.STRING;
+        }
+
+        position++;
+        char following = position < source.length() ? source.charAt(position) : '\0';
+
+        switch (c) {
+            case '(' -> type = TokenType.LEFT_PAREN;
+            case ')' -> type = TokenType.RIGHT_PAREN;
+            case '+' -> operator = Operator.PLUS;
+            case '-' -> operator = Operator.MINUS;
+            case '*' -> operator = Operator.MULTIPLY;
+            case '/' -> operator = Operator.DIVIDE;
+            case '<' -> operator = following == '=' ? Operator.LESS_OR_EQUALS : Operator.LESS;
+            case '>' -> operator = following == '=' ? Operator.GREATER_OR_EQUALS : Operator.GREATER;
+            case '!' -> operator = following == '=' ? Operator.NOT_EQUALS : Operator.NOT;
+            case '=' -> operator = following == '=' ? Operator.EQUALS : null;
+            case '&' -> operator = following == '&' ? Operator.AND : null;
+            case '|' -> operator = following == '|' ? Operator.OR : null;
+            default -> operator = null;
+        }
+
+        if (operator != null) {
+            if (operator.getSymbol().length() == 2) {
+                position++;
+            }
+            type = TokenType.OPERATOR;
+        } else if (c != '(' && c != ')') {
+            throw new IllegalArgumentException("Unexpected '" + c + "' at position " + start + " in expression: " + source);
+        }
+
+        end = position;
+        return type;
+    }
+
+    boolean matchesNumber() {
+        int from = 0;
+        if (!source.isEmpty() && (source.charAt(0) == '-' || source.charAt(0) == '+')) {
+            from = 1;
+        }
+        if (from >= source.length()) {
+            return false;
+        }
+
+        char first = source.charAt(from);
+        boolean startsNumber = isDigit(first)
+                || (first == '.' && from + 1 < source.length() && isDigit(source.charAt(from + 1)));
+        if (!startsNumber || scanNumber(from) != source.length()) {
+            return false;
+        }
+
+        if (source.charAt(0) == '-') {
+            intValue = -intValue;
+            doubleValue = -doubleValue;
+        }
+        return true;
+    }
+
+    private int scanNumber(int from) {
+        int i = from;
+        long integerPart = 0;
+        boolean fitsInt = true;
+
+        while (i < source.length() && isDigit(source.charAt(i))) {
+            if (fitsInt) {
+                integerPart = integerPart * 10 + (source.charAt(i) - '0');
+                fitsInt = integerPart <= Integer.MAX_VALUE;
+            }
+            i++;
+        }
+
+        boolean fraction = false;
+        if (i < source.length() && source.charAt(i) == '.') {
+            fraction = true;
+            i++;
+            while (i < source.length() && isDigit(source.charAt(i))) {
+                i++;
+            }
+        }
+
+        if (i < source.length() && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < source.length() && (source.charAt(exponent) == '+' || source.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < source.length() && isDigit(source.charAt(exponent))) {
+                fraction = true;
+                i = exponent;
+                while (i < source.length() && isDigit(source.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+
+        if (!fraction && fitsInt) {
+            intValue = (int) integerPart;
+            doubleValue = intValue;
+            type = TokenType.INTEGER;
+        } else {
+            doubleValue = Double.parseDouble(source.substring(from, i));
+            type = TokenType.DOUBLE;
+        }
+        return i;
+    }
+
+    TokenType type() {
+        return type;
+    }
+
+    Operator operator() {
+        return operator;
+    }
+
+    int intValue() {
+        return intValue;
+    }
+
+    double doubleValue() {
+        return doubleValue;
+    }
+
+    String text() {
+        return source.substring(start, end);
+    }
+
+    String stringValue() {
+        return source.substring(start + 1, end - 1);
+    }
+
+    boolean textEquals(String value) {
+        return end - start == value.length() && source.regionMatches(true, start, value, 0, value.length());
+    }
+
+    int position() {
+        return start;
+    }
+
+    String source() {
+        return source;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,98 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+import org.plema.models.Variable;
+
+import java.util.List;
+
+public class Frame {
+    protected final DataType[] types;
+    protected final long[] primitives;
+    protected final String[] strings;
+
+    public Frame(List<Variable> variables) {
+        this.types = new DataType[variables.size()];
+        this.primitives = new long[variables.size()];
+        this.strings = new String[variables.size()];
+        for (Variable variable : variables) {
+            types[variable.getSlot()] = variable.getType();
+            if (variable.getType() == DataType.STRING) {
+                strings[variable.getSlot()] = (String) DataType.STRING.getDefaultValue();
+            }
+        }
+    }
+
+    protected Frame(Frame shared) {
+        this.types = shared.types;
+        this.primitives = shared.primitives;
+        this.strings = shared.strings;
+    }
+
+    public static Frame create(List<Variable> variables, int threadCount) {
+        return threadCount > 1 ? new ConcurrentFrame(variables) : new Frame(variables);
+    }
+
+    public int getInt(int slot) {
+        return (int) primitives[slot];
+    }
+
+    public double getDouble(int slot) {
+        return Double.longBitsToDouble(primitives[slot]);
+    }
+
+    public boolean getBoolean(int slot) {
+        return primitives[slot] != 0;
+    }
+
+    public String getString(int slot) {
+        return strings[slot];
+    }
+
+    public void setInt(int slot, int value) {
+        primitives[slot] = value;
+    }
+
+    public void setDouble(int slot, double value) {
+        primitives[slot] = Double.doubleToRawLongBits(value);
+    }
+
+    public void setBoolean(int slot, boolean value) {
+        primitives[slot] = value ? 1 : 0;
+    }
+
+    public void setString(int slot, String value) {
+        strings[slot] = value;
+    }
+
+    public void assign(int slot, Expression expression) {
+        switch (types[slot]) {
+            case INT -> setInt(slot, expression.evaluateInt(this));
+            case DOUBLE -> setDouble(slot, expression.evaluateDouble(this));
+            case BOOLEAN -> setBoolean(slot, expression.evaluateBoolean(this));
+            case STRING -> setString(slot, expression.evaluateString(this));
+        }
+    }
+
+    public void update(int slot, Expression expression) {
+        assign(slot, expression);
+    }
+
+    public Value get(int slot) {
+        return switch (types[slot]) {
+            case INT -> new Value(getInt(slot), DataType.INT);
+            case DOUBLE -> new Value(getDouble(slot), DataType.DOUBLE);
+            case BOOLEAN -> new Value(getBoolean(slot), DataType.BOOLEAN);
+            case STRING -> new Value(getString(slot), DataType.STRING);
+        };
+    }
+
+    public void set(int slot, Value value) {
+        switch (types[slot]) {
+            case INT -> setInt(slot, value.asInt());
+            case DOUBLE -> setDouble(slot, value.asDouble());
+            case BOOLEAN -> setBoolean(slot, value.asBoolean());
+            case STRING -> setString(slot, value.asString());
+        }
+    }
+}
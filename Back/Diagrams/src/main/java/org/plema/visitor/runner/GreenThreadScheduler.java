@@ -0,0 +1,147 @@
+package org.plema.visitor.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class GreenThreadScheduler {
+    private final List<GreenThread> ready = new ArrayList<>();
+    private final List<GreenThread> threads = new ArrayList<>();
+    private final int quantum;
+    private final Random random;
+    private final long maxSteps;
+    private final Executor executor;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private int waiting;
+    private boolean running;
+    private boolean stepLimitReached;
+    private Exception error;
+
+    private static class GreenThread {
+        final SwitchInterpreter interpreter;
+        final BlocksCodeRunner runner;
+        final SwitchInterpreter.Continuation continuation;
+
+        GreenThread(SwitchInterpreter interpreter, BlocksCodeRunner runner) {
+            this.interpreter = interpreter;
+            this.runner = runner;
+            this.continuation = interpreter.start();
+        }
+    }
+
+    public GreenThreadScheduler(int quantum, Long seed, Executor executor) {
+        this(quantum, seed, Long.MAX_VALUE, executor);
+    }
+
+    public GreenThreadScheduler(int quantum, Long seed, long maxSteps, Executor executor) {
+        if (quantum < 1) {
+            throw new IllegalArgumentException("Scheduler quantum must be positive: " + quantum);
+        }
+        this.quantum = quantum;
+        this.random = seed == null ? null : new Random(seed);
+        this.maxSteps = maxSteps;
+        this.executor = executor;
+    }
+
+    public void addThread(SwitchInterpreter interpreter, BlocksCodeRunner runner) {
+        GreenThread thread = new GreenThread(interpreter, runner);
+        threads.add(thread);
+        ready.add(thread);
+    }
+
+    public CompletableFuture<Void> execute() {
+        synchronized (this) {
+            running = true;
+        }
+        drive();
+        return completion;
+    }
+
+    public synchronized long getSteps() {
+        long steps = 0;
+        for (GreenThread thread : threads) {
+            steps += thread.continuation.steps;
+        }
+        return steps;
+    }
+
+    public synchronized boolean isStepLimitReached() {
+        return stepLimitReached;
+    }
+
+    public synchronized Exception getError() {
+        return error;
+    }
+
+    private void drive() {
+        while (true) {
+            GreenThread thread;
+            int slice;
+            synchronized (this) {
+                long remaining = maxSteps - getSteps();
+                if (remaining <= 0 && !ready.isEmpty()) {
+                    stepLimitReached = true;
+                    ready.clear();
+                }
+                if (ready.isEmpty()) {
+                    running = false;
+                    completeIfFinished();
+                    return;
+                }
+                thread = ready.remove(random == null ? 0 : random.nextInt(ready.size()));
+                slice = (int) Math.min(quantum, remaining);
+            }
+
+            SwitchInterpreter.Continuation continuation = thread.continuation;
+            try {
+                thread.interpreter.runSlice(thread.runner, continuation, slice);
+            } catch (Exception e) {
+                System.err.println("Error executing thread: " + e.getMessage());
+                e.printStackTrace();
+                synchronized (this) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+                continuation.pc = SwitchInterpreter.HALT;
+            }
+
+            if (thread.interpreter.isInput(continuation.pc)) {
+                synchronized (this) {
+                    waiting++;
+                }
+                thread.interpreter.requestInput(thread.runner, continuation.pc)
+                        .whenComplete((pc, throwable) -> wake(thread, throwable == null ? pc : SwitchInterpreter.HALT));
+            } else if (continuation.pc != SwitchInterpreter.HALT) {
+                synchronized (this) {
+                    ready.add(thread);
+                }
+            }
+        }
+    }
+
+    private void wake(GreenThread thread, int pc) {
+        synchronized (this) {
+            waiting--;
+            thread.continuation.pc = pc;
+            if (pc != SwitchInterpreter.HALT) {
+                ready.add(thread);
+            }
+            if (running || ready.isEmpty()) {
+                completeIfFinished();
+                return;
+            }
+            running = true;
+        }
+        executor.execute(this::drive);
+    }
+
+    private void completeIfFinished() {
+        if (!running && ready.isEmpty() && waiting == 0) {
+            completion.complete(null);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+@FunctionalInterface
+interface IntExpression extends Expression {
+    @Override
+    int evaluateInt(Frame frame);
+
+    @Override
+    default DataType getType() {
+        return DataType.INT;
+    }
+
+    @Override
+    default double evaluateDouble(Frame frame) {
+        return evaluateInt(frame);
+    }
+
+    @Override
+    default boolean evaluateBoolean(Frame frame) {
+        return evaluateInt(frame) != 0;
+    }
+
+    @Override
+    default String evaluateString(Frame frame) {
+        return Integer.toString(evaluateInt(frame));
+    }
+
+    @Override
+    default Value evaluate(Frame frame) {
+        return new Value(evaluateInt(frame), DataType.INT);
+    }
+}
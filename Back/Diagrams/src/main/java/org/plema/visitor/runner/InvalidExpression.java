@@ -0,0 +1,46 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+public class InvalidExpression implements Expression {
+    private final String message;
+
+    public InvalidExpression(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public DataType getType() {
+        throw new IllegalArgumentException(message);
+    }
+
+    @Override
+    public int evaluateInt(Frame frame) {
+        throw new IllegalArgumentException(message);
+    }
+
+    @Override
+    public double evaluateDouble(Frame frame) {
+        throw new IllegalArgumentException(message);
+    }
+
+    @Override
+    public boolean evaluateBoolean(Frame frame) {
+        throw new IllegalArgumentException(message);
+    }
+
+    @Override
+    public String evaluateString(Frame frame) {
+        throw new IllegalArgumentException(message);
+    }
+
+    @Override
+    public Value evaluate(Frame frame) {
+        throw new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,45 @@
+package org.plema.visitor.runner;
+
+public enum Operator {
+    OR("||", 1),
+    AND("&&", 2),
+    EQUALS("==", 3),
+    NOT_EQUALS("!=", 3),
+    LESS("<", 4),
+    LESS_OR_EQUALS("<=", 4),
+    GREATER(">", 4),
+    GREATER_OR_EQUALS(">=", 4),
+    PLUS("+", 5),
+    MINUS("-", 5),
+    MULTIPLY("*", 6),
+    DIVIDE("/", 6),
+    NOT("!", 7);
+
+    private final String symbol;
+    private final int precedence;
+
+    Operator(String symbol, int precedence) {
+        this.symbol = symbol;
+        this.precedence = precedence;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getPrecedence() {
+        return precedence;
+    }
+
+    public boolean isLogical() {
+        return this == AND || this == OR;
+    }
+
+    public boolean isComparison() {
+        return precedence == 3 || precedence == 4;
+    }
+
+    public boolean isUnary() {
+        return this == NOT;
+    }
+}
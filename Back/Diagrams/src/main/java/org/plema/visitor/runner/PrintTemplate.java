@@ -0,0 +1,92 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.models.Variable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class PrintTemplate implements StringExpression {
+    private final String[] literals;
+    private final int[] slots;
+    private final DataType[] types;
+    private final int estimatedLength;
+
+    private PrintTemplate(List<String> literals, List<Variable> variables) {
+        this.literals = literals.toArray(new String[0]);
+        this.slots = new int[variables.size()];
+        this.types = new DataType[variables.size()];
+        for (int i = 0; i < variables.size(); i++) {
+            slots[i] = variables.get(i).getSlot();
+            types[i] = variables.get(i).getType();
+        }
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length + variables.size() * 8;
+    }
+
+    public static PrintTemplate compile(String expression, Map<String, Variable> variables) {
+        List<String> literals = new ArrayList<>();
+        List<Variable> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                literal.append(c);
+                continue;
+            }
+
+            if (inQuotes || !ExpressionLexer.isIdentifierPart(c)) {
+                literal.append(c);
+                continue;
+            }
+
+            int start = i;
+            while (i < expression.length() && ExpressionLexer.isIdentifierPart(expression.charAt(i))) {
+                i++;
+            }
+            String name = expression.substring(start, i);
+            i--;
+
+            Variable variable = variables.get(name);
+            if (variable == null) {
+                literal.append(name);
+            } else {
+                literals.add(literal.toString());
+                segments.add(variable);
+                literal.setLength(0);
+            }
+        }
+        literals.add(literal.toString());
+
+        return new PrintTemplate(literals, segments);
+    }
+
+    @Override
+    public String evaluateString(Frame frame) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder result = new StringBuilder(estimatedLength);
+        for (int i = 0; i < slots.length; i++) {
+            result.append(literals[i]);
+            int slot = slots[i];
+            switch (types[i]) {
+                case INT -> result.append(frame.getInt(slot));
+                case DOUBLE -> result.append(frame.getDouble(slot));
+                case BOOLEAN -> result.append(frame.getBoolean(slot));
+                case STRING -> result.append('"').append(frame.getString(slot)).append('"');
+            }
+        }
+        return result.append(literals[slots.length]).toString();
+    }
+}
@@ -0,0 +1,171 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+import org.plema.models.*;
+import org.plema.vertx.WebSocketMessageSender;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+public class ProfilingBlocksCodeRunner extends BlocksCodeRunner {
+    private final Map<Integer, Counters> counters = new HashMap<>();
+
+    private static class Counters {
+        long hits;
+        long nanos;
+        long expressionNanos;
+        Expression expression;
+    }
+
+    public ProfilingBlocksCodeRunner(Frame frame, WebSocketMessageSender ioHandler, String clientId) {
+        super(frame, ioHandler, clientId);
+    }
+
+    public Map<Integer, BlockProfile> getProfile() {
+        Map<Integer, BlockProfile> profile = new TreeMap<>();
+        counters.forEach((id, counter) ->
+                profile.put(id, new BlockProfile(counter.hits, counter.nanos, counter.expressionNanos)));
+        return profile;
+    }
+
+    @Override
+    public AbstractBlock doPrint(PrintBlock printBlock) {
+        long start = System.nanoTime();
+        AbstractBlock next = super.doPrint(printBlock);
+        record(printBlock, start);
+        return next;
+    }
+
+    @Override
+    public AbstractBlock doAssign(AssignBlock assignBlock) {
+        long start = System.nanoTime();
+        AbstractBlock next = super.doAssign(assignBlock);
+        record(assignBlock, start);
+        return next;
+    }
+
+    @Override
+    public AbstractBlock doCondition(ConditionBlock conditionBlock) {
+        long start = System.nanoTime();
+        AbstractBlock next = super.doCondition(conditionBlock);
+        record(conditionBlock, start);
+        return next;
+    }
+
+    @Override
+    public AbstractBlock doWhile(WhileBlock whileBlock) {
+        long start = System.nanoTime();
+        AbstractBlock next = super.doWhile(whileBlock);
+        record(whileBlock, start);
+        return next;
+    }
+
+    @Override
+    public AbstractBlock doEnd(EndBlock endBlock) {
+        long start = System.nanoTime();
+        AbstractBlock next = super.doEnd(endBlock);
+        record(endBlock, start);
+        return next;
+    }
+
+    @Override
+    public AbstractBlock doInput(InputBlock inputBlock) {
+        long start = System.nanoTime();
+        AbstractBlock next = super.doInput(inputBlock);
+        record(inputBlock, start);
+        return next;
+    }
+
+    @Override
+    public CompletableFuture<AbstractBlock> doInputAsync(InputBlock inputBlock) {
+        long start = System.nanoTime();
+        return super.doInputAsync(inputBlock).whenComplete((next, throwable) -> record(inputBlock, start));
+    }
+
+    @Override
+    protected Expression expressionOf(ExpressionBlock block) {
+        Counters counter = countersOf(block);
+        if (counter.expression == null) {
+            counter.expression = new ProfiledExpression(block.getCompiledExpression(), counter);
+        }
+        return counter.expression;
+    }
+
+    private void record(AbstractBlock block, long start) {
+        Counters counter = countersOf(block);
+        counter.hits++;
+        counter.nanos += System.nanoTime() - start;
+    }
+
+    private Counters countersOf(AbstractBlock block) {
+        return counters.computeIfAbsent(block.getId(), id -> new Counters());
+    }
+
+    private static class ProfiledExpression implements Expression {
+        private final Expression delegate;
+        private final Counters counter;
+
+        ProfiledExpression(Expression delegate, Counters counter) {
+            this.delegate = delegate;
+            this.counter = counter;
+        }
+
+        @Override
+        public DataType getType() {
+            return delegate.getType();
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            long start = System.nanoTime();
+            try {
+                return delegate.evaluateInt(frame);
+            } finally {
+                counter.expressionNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public double evaluateDouble(Frame frame) {
+            long start = System.nanoTime();
+            try {
+                return delegate.evaluateDouble(frame);
+            } finally {
+                counter.expressionNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public boolean evaluateBoolean(Frame frame) {
+            long start = System.nanoTime();
+            try {
+                return delegate.evaluateBoolean(frame);
+            } finally {
+                counter.expressionNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public String evaluateString(Frame frame) {
+            long start = System.nanoTime();
+            try {
+                return delegate.evaluateString(frame);
+            } finally {
+                counter.expressionNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Value evaluate(Frame frame) {
+            long start = System.nanoTime();
+            try {
+                return delegate.evaluate(frame);
+            } finally {
+                counter.expressionNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -2,469 +2,270 @@ package org.plema.visitor.runner;
 
 import org.plema.DataType;
 import org.plema.Value;
+import org.plema.models.Variable;
+import org.plema.visitor.runner.ExpressionLexer.TokenType;
 
-import java.util.*;
-
-class RpnHandler {
-    private static final Map<String, Integer> OPERATOR_PRECEDENCE = Map.ofEntries(
-            Map.entry("+", 1),
-            Map.entry("-", 1),
-            Map.entry("*", 2),
-            Map.entry("/", 2),
-            Map.entry("&&", 0),
-            Map.entry("||", 0),
-            Map.entry("==", 0),
-            Map.entry("!=", 0),
-            Map.entry("<", 0),
-            Map.entry("<=", 0),
-            Map.entry(">", 0),
-            Map.entry(">=", 0)
-    );
-
-    private static final Set<String> LOGICAL_OPERATORS = Set.of("&&", "||");
-    private static final Set<String> COMPARISON_OPERATORS = Set.of("==", "!=", "<", "<=", ">", ">=");
-    private static final Set<String> BOOLEAN_LITERALS = Set.of("true", "false");
-
-    public static Value evaluateExpression(String expression, Map<String, Value> variables) {
-        if (BOOLEAN_LITERALS.contains(expression.toLowerCase())) {
-            return new Value(Boolean.parseBoolean(expression), DataType.BOOLEAN);
-        }
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
-        if (containsLogicalOperators(expression)) {
-            return evaluateLogicalExpression(expression, variables);
+public class RpnHandler {
+    public static Expression compile(String expression, Map<String, Variable> variables) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Expression is empty");
         }
 
-        if (containsComparisonOperators(expression)) {
-            boolean result = evaluateCondition(expression, variables);
-            return new Value(result, DataType.BOOLEAN);
+        ExpressionLexer lexer = new ExpressionLexer(expression);
+        lexer.next();
+        Expression result = parseBinary(lexer, variables, 1);
+        if (lexer.type() != TokenType.END) {
+            throw unexpectedToken(lexer);
         }
+        return result;
+    }
 
-        for (Map.Entry<String, Value> entry : variables.entrySet()) {
-            expression = expression.replaceAll("\\b" + entry.getKey() + "\\b",
-                    entry.getValue().value().toString());
+    public static Expression compileCondition(String expression, Map<String, Variable> variables) {
+        Expression condition = compile(expression, variables);
+        if (condition.getType() != DataType.BOOLEAN) {
+            throw new IllegalArgumentException("Invalid condition (not a boolean): " + expression);
         }
-
-        List<String> rpn = toReversePolishNotation(expression, variables);
-        return evaluateRPN(rpn, variables);
+        return condition;
     }
 
-    private static boolean containsLogicalOperators(String expression) {
-        return expression.contains("&&") || expression.contains("||");
-    }
+    private static Expression parseBinary(ExpressionLexer lexer, Map<String, Variable> variables, int minPrecedence) {
+        Expression left = parseUnary(lexer, variables);
+
+        while (lexer.type() == TokenType.OPERATOR && !lexer.operator().isUnary()
+                && lexer.operator().getPrecedence() >= minPrecedence) {
+            Operator operator = lexer.operator();
+            lexer.next();
+            Expression right = parseBinary(lexer, variables, operator.getPrecedence() + 1);
+            left = operator.isLogical()
+                    ? compileLogical(operator, left, right)
+                    : fold(compileBinary(operator, left, right), left, right);
+        }
 
-    private static boolean containsComparisonOperators(String expression) {
-        return expression.contains("==") || expression.contains("!=") ||
-                expression.contains("<=") || expression.contains(">=") ||
-                expression.contains("<") || expression.contains(">");
+        return left;
     }
 
-    private static Value evaluateLogicalExpression(String expression, Map<String, Value> variables) {
-        expression = evaluateParentheses(expression, variables);
-
-        List<String> tokens = tokenizeLogicalExpression(expression);
-
-        if (tokens.isEmpty()) {
-            throw new IllegalArgumentException("Invalid logical expression: " + expression);
+    private static Expression parseUnary(ExpressionLexer lexer, Map<String, Variable> variables) {
+        if (lexer.type() == TokenType.OPERATOR && lexer.operator() == Operator.MINUS) {
+            lexer.next();
+            Expression operand = parseUnary(lexer, variables);
+            return fold(compileNegation(operand, lexer.source()), operand);
         }
+        if (lexer.type() == TokenType.OPERATOR && lexer.operator() == Operator.NOT) {
+            lexer.next();
+            Expression operand = parseUnary(lexer, variables);
+            return fold((BooleanExpression) frame -> !operand.evaluateBoolean(frame), operand);
+        }
+        return parseOperand(lexer, variables);
+    }
 
-        int i = 1;
-        while (i < tokens.size()) {
-            if (i + 1 >= tokens.size()) {
-                throw new IllegalArgumentException("Invalid logical expression format: " + expression);
+    private static Expression parseOperand(ExpressionLexer lexer, Map<String, Variable> variables) {
+        Expression operand;
+        switch (lexer.type()) {
+            case INTEGER -> operand = new ConstantExpression(new Value(lexer.intValue(), DataType.INT));
+            case DOUBLE -> operand = new ConstantExpression(new Value(lexer.doubleValue(), DataType.DOUBLE));
+            case STRING -> operand = new ConstantExpression(new Value(lexer.stringValue(), DataType.STRING));
+            case IDENTIFIER -> operand = compileIdentifier(lexer, variables);
+            case LEFT_PAREN -> {
+                lexer.next();
+                operand = parseBinary(lexer, variables, 1);
+                if (lexer.type() != TokenType.RIGHT_PAREN) {
+                    throw new IllegalArgumentException("Mismatched parentheses in expression: " + lexer.source());
+                }
             }
+            case END -> throw new IllegalArgumentException("Invalid expression: " + lexer.source());
+            default -> throw unexpectedToken(lexer);
+        }
+        lexer.next();
+        return operand;
+    }
 
-            String operator = tokens.get(i);
-            if ("&&".equals(operator)) {
-                boolean leftOperand = evaluateCondition(tokens.get(i - 1), variables);
-                boolean rightOperand = evaluateCondition(tokens.get(i + 1), variables);
-                boolean result = leftOperand && rightOperand;
-
-                tokens.set(i - 1, String.valueOf(result));
-                tokens.remove(i);
-                tokens.remove(i);
-            } else {
-                i += 2;
-            }
+    private static Expression compileIdentifier(ExpressionLexer lexer, Map<String, Variable> variables) {
+        if (lexer.textEquals("true") || lexer.textEquals("false")) {
+            return new ConstantExpression(new Value(lexer.textEquals("true"), DataType.BOOLEAN));
         }
 
-        boolean result = evaluateCondition(tokens.get(0), variables);
+        Variable variable = variables.get(lexer.text());
+        if (variable == null) {
+            throw new IllegalArgumentException("Unknown token: " + lexer.text());
+        }
 
-        for (i = 1; i < tokens.size(); i += 2) {
-            if (i + 1 >= tokens.size()) {
-                throw new IllegalArgumentException("Invalid logical expression format: " + expression);
-            }
+        int slot = variable.getSlot();
+        return switch (variable.getType()) {
+            case INT -> (IntExpression) frame -> frame.getInt(slot);
+            case DOUBLE -> (DoubleExpression) frame -> frame.getDouble(slot);
+            case BOOLEAN -> (BooleanExpression) frame -> frame.getBoolean(slot);
+            case STRING -> (StringExpression) frame -> frame.getString(slot);
+        };
+    }
 
-            String operator = tokens.get(i);
-            boolean rightOperand = evaluateCondition(tokens.get(i + 1), variables);
+    private static Expression compileNegation(Expression operand, String expression) {
+        return switch (operand.getType()) {
+            case INT -> (IntExpression) frame -> -operand.evaluateInt(frame);
+            case DOUBLE -> (DoubleExpression) frame -> -operand.evaluateDouble(frame);
+            default -> throw new IllegalArgumentException("Invalid operand for unary minus in expression: " + expression);
+        };
+    }
 
-            if ("||".equals(operator)) {
-                result = result || rightOperand;
-            } else {
-                throw new IllegalArgumentException("Unknown logical operator: " + operator);
-            }
+    private static IllegalArgumentException unexpectedToken(ExpressionLexer lexer) {
+        if (lexer.type() == TokenType.RIGHT_PAREN) {
+            return new IllegalArgumentException("Mismatched parentheses in expression: " + lexer.source());
         }
-
-        return new Value(result, DataType.BOOLEAN);
+        return new IllegalArgumentException("Unexpected '" + lexer.text() + "' at position " + lexer.position()
+                + " in expression: " + lexer.source());
     }
 
-    private static List<String> tokenizeLogicalExpression(String expression) {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder currentToken = new StringBuilder();
-        int parenCount = 0;
+    public static boolean references(String expression, Variable variable) {
+        return identifiers(expression).contains(variable.getName());
+    }
 
+    public static Set<String> identifiers(String expression) {
+        Set<String> identifiers = new HashSet<>();
+        boolean inQuotes = false;
         for (int i = 0; i < expression.length(); i++) {
             char c = expression.charAt(i);
-
-            if (c == '(') {
-                parenCount++;
-                currentToken.append(c);
-            } else if (c == ')') {
-                parenCount--;
-                currentToken.append(c);
-            } else if (parenCount == 0 && i < expression.length() - 1) {
-                if ((c == '&' && expression.charAt(i + 1) == '&') ||
-                        (c == '|' && expression.charAt(i + 1) == '|')) {
-
-                    if (!currentToken.isEmpty()) {
-                        tokens.add(currentToken.toString().trim());
-                        currentToken = new StringBuilder();
-                    }
-
-                    tokens.add(c + "" + expression.charAt(i + 1));
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && ExpressionLexer.isIdentifierPart(c)) {
+                int start = i;
+                while (i + 1 < expression.length() && ExpressionLexer.isIdentifierPart(expression.charAt(i + 1))) {
                     i++;
-                } else {
-                    currentToken.append(c);
                 }
-            } else {
-                currentToken.append(c);
+                identifiers.add(expression.substring(start, i + 1));
             }
         }
+        return identifiers;
+    }
 
-        if (!currentToken.isEmpty()) {
-            tokens.add(currentToken.toString().trim());
+    public static Value parseInput(String input) {
+        String trimmed = input.trim();
+        ExpressionLexer lexer = new ExpressionLexer(trimmed);
+        if (lexer.matchesNumber()) {
+            return lexer.type() == TokenType.INTEGER
+                    ? new Value(lexer.intValue(), DataType.INT)
+                    : new Value(lexer.doubleValue(), DataType.DOUBLE);
         }
-
-        return tokens;
+        return new Value(input, DataType.STRING);
     }
 
-    private static String evaluateParentheses(String expression, Map<String, Value> variables) {
-        StringBuilder result = new StringBuilder(expression);
+    private static Expression compileLogical(Operator operator, Expression left, Expression right) {
+        boolean isAnd = operator == Operator.AND;
 
-        while (result.toString().contains("(")) {
-            int openParenIndex = result.lastIndexOf("(");
-            if (openParenIndex == -1) break;
-
-            int closeParenIndex = findMatchingClosingParen(result.toString(), openParenIndex);
-            if (closeParenIndex == -1) {
-                throw new IllegalArgumentException("Mismatched parentheses in expression: " + expression);
+        if (left instanceof ConstantExpression) {
+            boolean value = left.evaluateBoolean(null);
+            if (value != isAnd) {
+                return new ConstantExpression(new Value(value, DataType.BOOLEAN));
             }
+            return toBoolean(right);
+        }
 
-            String subexpression = result.substring(openParenIndex + 1, closeParenIndex);
-            Value subexprResult = evaluateLogicalExpression(subexpression, variables);
-
-            result.replace(openParenIndex, closeParenIndex + 1, String.valueOf(subexprResult.value()));
+        if (right instanceof ConstantExpression && right.evaluateBoolean(null) == isAnd) {
+            return toBoolean(left);
         }
 
-        return result.toString();
+        return isAnd
+                ? (BooleanExpression) frame -> left.evaluateBoolean(frame) && right.evaluateBoolean(frame)
+                : (BooleanExpression) frame -> left.evaluateBoolean(frame) || right.evaluateBoolean(frame);
     }
 
-    private static int findMatchingClosingParen(String expression, int openParenIndex) {
-        int count = 1;
-        for (int i = openParenIndex + 1; i < expression.length(); i++) {
-            if (expression.charAt(i) == '(') {
-                count++;
-            } else if (expression.charAt(i) == ')') {
-                count--;
-                if (count == 0) {
-                    return i;
-                }
-            }
+    private static Expression toBoolean(Expression expression) {
+        if (expression.getType() == DataType.BOOLEAN) {
+            return expression;
         }
-        return -1;
+        return fold((BooleanExpression) expression::evaluateBoolean, expression);
     }
 
-    private static List<String> toReversePolishNotation(String expression, Map<String, Value> variables) {
-        List<String> output = new ArrayList<>();
-        Deque<String> operators = new ArrayDeque<>();
-
-        StringTokenizer tokenizer = new StringTokenizer(expression, "+-*/()", true);
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken().trim();
-            if (token.isEmpty()) continue;
-
-            if (isNumber(token) || variables.containsKey(token) || BOOLEAN_LITERALS.contains(token.toLowerCase())) {
-                output.add(token);
-            } else if (OPERATOR_PRECEDENCE.containsKey(token)) {
-                while (!operators.isEmpty() && !operators.peek().equals("(") &&
-                        OPERATOR_PRECEDENCE.getOrDefault(operators.peek(), 0) >= OPERATOR_PRECEDENCE.get(token)) {
-                    output.add(operators.pop());
-                }
-                operators.push(token);
-            } else if (token.equals("(")) {
-                operators.push(token);
-            } else if (token.equals(")")) {
-                while (!operators.isEmpty() && !operators.peek().equals("(")) {
-                    output.add(operators.pop());
-                }
-                if (!operators.isEmpty() && operators.peek().equals("(")) {
-                    operators.pop();
-                }
+    private static Expression fold(Expression expression, Expression... operands) {
+        for (Expression operand : operands) {
+            if (!(operand instanceof ConstantExpression)) {
+                return expression;
             }
         }
 
-        while (!operators.isEmpty()) {
-            output.add(operators.pop());
-        }
-
-        return output;
-    }
-
-    private static Value evaluateRPN(List<String> rpn, Map<String, Value> variables) {
-        Deque<Value> stack = new ArrayDeque<>();
-
-        for (String token : rpn) {
-            if (isNumber(token)) {
-                if (isInteger(token)) {
-                    stack.push(new Value(Integer.parseInt(token), DataType.INT));
-                } else {
-                    stack.push(new Value(Double.parseDouble(token), DataType.DOUBLE));
-                }
-            } else if (BOOLEAN_LITERALS.contains(token.toLowerCase())) {
-                stack.push(new Value(Boolean.parseBoolean(token), DataType.BOOLEAN));
-            } else if (variables.containsKey(token)) {
-                stack.push(variables.get(token));
-            } else if (OPERATOR_PRECEDENCE.containsKey(token)) {
-                Value b = stack.pop();
-                Value a = stack.pop();
-                stack.push(applyOperator(a, b, token));
-            } else {
-                throw new IllegalArgumentException("Unknown token: " + token);
-            }
+        try {
+            return new ConstantExpression(expression.evaluate(null));
+        } catch (ArithmeticException | IllegalArgumentException | ClassCastException e) {
+            return expression;
         }
-
-        return stack.pop();
     }
 
-    public static boolean evaluateCondition(String condition, Map<String, Value> variables) {
-        condition = condition.trim();
-        if (condition.equalsIgnoreCase("true")) return true;
-        if (condition.equalsIgnoreCase("false")) return false;
-        if (variables.containsKey(condition) && variables.get(condition).isBoolean()) {
-            return (Boolean) variables.get(condition).value();
-        }
-
-        if (condition.contains("(")) {
-            condition = evaluateParentheses(condition, variables);
+    private static Expression compileBinary(Operator operator, Expression left, Expression right) {
+        if (operator.isComparison()) {
+            return compileComparison(operator, left, right);
         }
 
-        String operator = findOperator(condition);
-        if (operator == null) {
-            Value result = evaluateExpression(condition, variables);
-            if (result.isBoolean()) {
-                return (Boolean) result.value();
-            }
-            throw new IllegalArgumentException("Invalid condition (no operator found): " + condition);
+        if (operator == Operator.PLUS && (left.getType() == DataType.STRING || right.getType() == DataType.STRING)) {
+            return (StringExpression) frame -> left.evaluateString(frame) + right.evaluateString(frame);
         }
 
-        String[] parts = splitByOperatorRespectingParentheses(condition, operator);
-        if (parts.length != 2) {
-            throw new IllegalArgumentException("Invalid condition format: " + condition);
+        if (left.getType() == DataType.INT && right.getType() == DataType.INT) {
+            return switch (operator) {
+                case PLUS -> (IntExpression) frame -> left.evaluateInt(frame) + right.evaluateInt(frame);
+                case MINUS -> (IntExpression) frame -> left.evaluateInt(frame) - right.evaluateInt(frame);
+                case MULTIPLY -> (IntExpression) frame -> left.evaluateInt(frame) * right.evaluateInt(frame);
+                case DIVIDE -> (IntExpression) frame -> left.evaluateInt(frame) / right.evaluateInt(frame);
+                default -> throw new IllegalArgumentException("Unknown operator: " + operator.getSymbol());
+            };
         }
 
-        String leftExpr = parts[0].trim();
-        String rightExpr = parts[1].trim();
-
-        Value leftValue = getValue(variables, leftExpr);
-        Value rightValue = getValue(variables, rightExpr);
+        return switch (operator) {
+            case PLUS -> (DoubleExpression) frame -> left.evaluateDouble(frame) + right.evaluateDouble(frame);
+            case MINUS -> (DoubleExpression) frame -> left.evaluateDouble(frame) - right.evaluateDouble(frame);
+            case MULTIPLY -> (DoubleExpression) frame -> left.evaluateDouble(frame) * right.evaluateDouble(frame);
+            case DIVIDE -> (DoubleExpression) frame -> left.evaluateDouble(frame) / right.evaluateDouble(frame);
+            default -> throw new IllegalArgumentException("Unknown operator: " + operator.getSymbol());
+        };
+    }
 
-        if (leftValue.isBoolean() && rightValue.isBoolean()) {
-            boolean leftBool = (Boolean) leftValue.value();
-            boolean rightBool = (Boolean) rightValue.value();
+    private static Expression compileComparison(Operator operator, Expression left, Expression right) {
+        DataType leftType = left.getType();
+        DataType rightType = right.getType();
 
+        if (leftType == DataType.BOOLEAN && rightType == DataType.BOOLEAN) {
             return switch (operator) {
-                case "==" -> leftBool == rightBool;
-                case "!=" -> leftBool != rightBool;
-                default -> throw new IllegalArgumentException("Invalid operator for boolean comparison: " + operator);
+                case EQUALS -> (BooleanExpression) frame -> left.evaluateBoolean(frame) == right.evaluateBoolean(frame);
+                case NOT_EQUALS -> (BooleanExpression) frame -> left.evaluateBoolean(frame) != right.evaluateBoolean(frame);
+                default -> throw new IllegalArgumentException(
+                        "Invalid operator for boolean comparison: " + operator.getSymbol());
             };
-        } else if ((leftValue.isInt() || leftValue.isDouble()) &&
-                (rightValue.isInt() || rightValue.isDouble())) {
-            double leftNum = leftValue.asDouble();
-            double rightNum = rightValue.asDouble();
-
-            return isConditionTrue(operator, leftNum, rightNum);
-        } else if (leftValue.isString() && rightValue.isString()) {
-            String leftStr = (String) leftValue.value();
-            String rightStr = (String) rightValue.value();
+        }
 
+        if (leftType == DataType.INT && rightType == DataType.INT) {
             return switch (operator) {
-                case "==" -> leftStr.equals(rightStr);
-                case "!=" -> !leftStr.equals(rightStr);
-                default -> throw new IllegalArgumentException("Invalid operator for string comparison: " + operator);
+                case EQUALS -> (BooleanExpression) frame -> left.evaluateInt(frame) == right.evaluateInt(frame);
+                case NOT_EQUALS -> (BooleanExpression) frame -> left.evaluateInt(frame) != right.evaluateInt(frame);
+                case LESS -> (BooleanExpression) frame -> left.evaluateInt(frame) < right.evaluateInt(frame);
+                case LESS_OR_EQUALS -> (BooleanExpression) frame -> left.evaluateInt(frame) <= right.evaluateInt(frame);
+                case GREATER -> (BooleanExpression) frame -> left.evaluateInt(frame) > right.evaluateInt(frame);
+                case GREATER_OR_EQUALS -> (BooleanExpression) frame -> left.evaluateInt(frame) >= right.evaluateInt(frame);
+                default -> throw new IllegalArgumentException("Invalid operator: " + operator.getSymbol());
             };
-        } else {
-            String leftStr = String.valueOf(leftValue.value());
-            String rightStr = String.valueOf(rightValue.value());
+        }
 
+        if (isNumeric(leftType) && isNumeric(rightType)) {
             return switch (operator) {
-                case "==" -> leftStr.equals(rightStr);
-                case "!=" -> !leftStr.equals(rightStr);
-                default -> throw new IllegalArgumentException("Invalid operator for mixed type comparison: " + operator);
+                case EQUALS -> (BooleanExpression) frame -> left.evaluateDouble(frame) == right.evaluateDouble(frame);
+                case NOT_EQUALS -> (BooleanExpression) frame -> left.evaluateDouble(frame) != right.evaluateDouble(frame);
+                case LESS -> (BooleanExpression) frame -> left.evaluateDouble(frame) < right.evaluateDouble(frame);
+                case LESS_OR_EQUALS -> (BooleanExpression) frame -> left.evaluateDouble(frame) <= right.evaluateDouble(frame);
+                case GREATER -> (BooleanExpression) frame -> left.evaluateDouble(frame) > right.evaluateDouble(frame);
+                case GREATER_OR_EQUALS -> (BooleanExpression) frame -> left.evaluateDouble(frame) >= right.evaluateDouble(frame);
+                default -> throw new IllegalArgumentException("Invalid operator: " + operator.getSymbol());
             };
         }
-    }
-    private static boolean isConditionTrue(String operator, double leftNum, double rightNum) {
+
         return switch (operator) {
-            case "==" -> leftNum == rightNum;
-            case "!=" -> leftNum != rightNum;
-            case "<" -> leftNum < rightNum;
-            case "<=" -> leftNum <= rightNum;
-            case ">" -> leftNum > rightNum;
-            case ">=" -> leftNum >= rightNum;
-            default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+            case EQUALS -> (BooleanExpression) frame -> left.evaluateString(frame).equals(right.evaluateString(frame));
+            case NOT_EQUALS -> (BooleanExpression) frame -> !left.evaluateString(frame).equals(right.evaluateString(frame));
+            default -> throw new IllegalArgumentException(
+                    "Invalid operator for string comparison: " + operator.getSymbol());
         };
     }
-    private static String[] splitByOperatorRespectingParentheses(String condition, String operator) {
-        int parenCount = 0;
-        int operatorPos = -1;
-
-        for (int i = 0; i <= condition.length() - operator.length(); i++) {
-            if (condition.charAt(i) == '(') {
-                parenCount++;
-            } else if (condition.charAt(i) == ')') {
-                parenCount--;
-            } else if (parenCount == 0 && condition.startsWith(operator, i)) {
-                operatorPos = i;
-                break;
-            }
-        }
-
-        if (operatorPos == -1) {
-            operatorPos = condition.indexOf(operator);
-        }
-
-        if (operatorPos == -1) {
-            return new String[0];
-        }
 
-        String[] parts = new String[2];
-        parts[0] = condition.substring(0, operatorPos);
-        parts[1] = condition.substring(operatorPos + operator.length());
-        return parts;
-    }
-
-
-    private static Value getValue(Map<String, Value> variables, String expr) {
-        expr = expr.trim();
-        if (expr.equalsIgnoreCase("true")) {
-            return new Value(true, DataType.BOOLEAN);
-        } else if (expr.equalsIgnoreCase("false")) {
-            return new Value(false, DataType.BOOLEAN);
-        }
-
-        if (variables.containsKey(expr)) {
-            return variables.get(expr);
-        }
-        else if (isNumber(expr)) {
-            if (isInteger(expr)) {
-                return new Value(Integer.parseInt(expr), DataType.INT);
-            } else {
-                return new Value(Double.parseDouble(expr), DataType.DOUBLE);
-            }
-        }
-        else {
-            if (expr.contains("(")) {
-                String evaluated = evaluateParentheses(expr, variables);
-                if (!evaluated.equals(expr)) {
-                    return getValue(variables, evaluated);
-                }
-            }
-            return evaluateExpression(expr, variables);
-        }
-    }
-    private static String findOperator(String condition) {
-        if (condition.contains("==")) return "==";
-        if (condition.contains("!=")) return "!=";
-        if (condition.contains("<=")) return "<=";
-        if (condition.contains(">=")) return ">=";
-        if (condition.contains("<")) return "<";
-        if (condition.contains(">")) return ">";
-        return null;
-    }
-
-    private static Value applyOperator(Value a, Value b, String operator) {
-        if (operator.equals("&&") || operator.equals("||")) {
-            boolean result;
-            boolean aValue = a.asBoolean();
-            boolean bValue = b.asBoolean();
-
-            if (operator.equals("&&")) {
-                result = aValue && bValue;
-            } else {
-                result = aValue || bValue;
-            }
-            return new Value(result, DataType.BOOLEAN);
-        }
-
-        if (COMPARISON_OPERATORS.contains(operator)) {
-            boolean result;
-
-            if (a.isBoolean() && b.isBoolean()) {
-                boolean aValue = a.asBoolean();
-                boolean bValue = b.asBoolean();
-
-                result = switch (operator) {
-                    case "==" -> aValue == bValue;
-                    case "!=" -> aValue != bValue;
-                    default -> throw new IllegalArgumentException("Invalid operator for boolean comparison: " + operator);
-                };
-            } else {
-                double aValue = a.asDouble();
-                double bValue = b.asDouble();
-
-                result = isConditionTrue(operator, aValue, bValue);
-            }
-
-            return new Value(result, DataType.BOOLEAN);
-        }
-
-        if (a.isInt() && b.isInt()) {
-            int result;
-            switch (operator) {
-                case "+" -> result = a.asInt() + b.asInt();
-                case "-" -> result = a.asInt() - b.asInt();
-                case "*" -> result = a.asInt() * b.asInt();
-                case "/" -> result = a.asInt() / b.asInt();
-                default -> throw new IllegalArgumentException("Unknown operator: " + operator);
-            }
-            return new Value(result, DataType.INT);
-        } else {
-            double result;
-            switch (operator) {
-                case "+" -> result = a.asDouble() + b.asDouble();
-                case "-" -> result = a.asDouble() - b.asDouble();
-                case "*" -> result = a.asDouble() * b.asDouble();
-                case "/" -> result = a.asDouble() / b.asDouble();
-                default -> throw new IllegalArgumentException("Unknown operator: " + operator);
-            }
-            return new Value(result, DataType.DOUBLE);
-        }
-    }
-
-    private static boolean isNumber(String str) {
-        try {
-            Double.parseDouble(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private static boolean isInteger(String str) {
-        try {
-            Integer.parseInt(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+    private static boolean isNumeric(DataType type) {
+        return type == DataType.INT || type == DataType.DOUBLE;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package org.plema.visitor.runner;
+
+import org.plema.DataType;
+import org.plema.Value;
+
+@FunctionalInterface
+interface StringExpression extends Expression {
+    @Override
+    String evaluateString(Frame frame);
+
+    @Override
+    default DataType getType() {
+        return DataType.STRING;
+    }
+
+    @Override
+    default int evaluateInt(Frame frame) {
+        return evaluate(frame).asInt();
+    }
+
+    @Override
+    default double evaluateDouble(Frame frame) {
+        return evaluate(frame).asDouble();
+    }
+
+    @Override
+    default boolean evaluateBoolean(Frame frame) {
+        return Boolean.parseBoolean(evaluateString(frame));
+    }
+
+    @Override
+    default Value evaluate(Frame frame) {
+        return new Value(evaluateString(frame), DataType.STRING);
+    }
+}
@@ -0,0 +1,175 @@
+package org.plema.visitor.runner;
+
+import org.plema.BlockType;
+import org.plema.models.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class SwitchInterpreter {
+    static final int HALT = -1;
+
+    private final BlockType[] opcodes;
+    private final int[] next;
+    private final int[] branch;
+    private final int[] slots;
+    private final boolean[] updates;
+    private final Expression[] expressions;
+    private final InputBlock[] inputs;
+    private final int start;
+
+    public SwitchInterpreter(AbstractBlock entry) {
+        List<AbstractBlock> blocks = new ArrayList<>();
+        Map<AbstractBlock, Integer> indexes = new IdentityHashMap<>();
+        List<AbstractBlock> pending = new ArrayList<>();
+        pending.add(entry);
+        while (!pending.isEmpty()) {
+            AbstractBlock block = pending.remove(pending.size() - 1);
+            if (block == null || indexes.containsKey(block)) {
+                continue;
+            }
+            indexes.put(block, blocks.size());
+            blocks.add(block);
+            if (block instanceof ConditionBlock conditionBlock) {
+                pending.add(conditionBlock.getFalseBlock());
+                pending.add(conditionBlock.getTrueBlock());
+            } else if (block instanceof WhileBlock whileBlock) {
+                pending.add(whileBlock.getNextBlock());
+                pending.add(whileBlock.getBodyBlock());
+            } else {
+                pending.add(block.getNextBlock());
+            }
+        }
+
+        int size = blocks.size();
+        this.opcodes = new BlockType[size];
+        this.next = new int[size];
+        this.branch = new int[size];
+        this.slots = new int[size];
+        this.updates = new boolean[size];
+        this.expressions = new Expression[size];
+        this.inputs = new InputBlock[size];
+
+        for (int i = 0; i < size; i++) {
+            AbstractBlock block = blocks.get(i);
+            opcodes[i] = block.getType();
+            next[i] = indexOf(indexes, block.getNextBlock());
+            branch[i] = HALT;
+
+            if (block instanceof ConditionBlock conditionBlock) {
+                next[i] = indexOf(indexes, conditionBlock.getTrueBlock());
+                branch[i] = indexOf(indexes, conditionBlock.getFalseBlock());
+            } else if (block instanceof WhileBlock whileBlock) {
+                next[i] = indexOf(indexes, whileBlock.getBodyBlock());
+                branch[i] = indexOf(indexes, whileBlock.getNextBlock());
+            } else if (block instanceof InputBlock inputBlock) {
+                inputs[i] = inputBlock;
+            }
+
+            if (block instanceof ExpressionBlock expressionBlock) {
+                expressions[i] = expressionBlock.getCompiledExpression();
+            }
+            if (block instanceof AssignBlock assignBlock) {
+                slots[i] = assignBlock.getTarget() == null ? HALT : assignBlock.getTarget().getSlot();
+                updates[i] = assignBlock.isSelfReferencing();
+            }
+        }
+
+        this.start = indexOf(indexes, entry);
+    }
+
+    private static int indexOf(Map<AbstractBlock, Integer> indexes, AbstractBlock block) {
+        int hops = 0;
+        while (block instanceof EndBlock && hops++ < indexes.size()) {
+            block = block.getNextBlock();
+        }
+        return block == null ? HALT : indexes.get(block);
+    }
+
+    static class Continuation {
+        int pc;
+        long steps;
+
+        Continuation(int pc) {
+            this.pc = pc;
+        }
+    }
+
+    public void execute(BlocksCodeRunner runner) {
+        run(runner, new Continuation(start), Long.MAX_VALUE, false);
+    }
+
+    public CompletableFuture<Void> executeAsync(BlocksCodeRunner runner, Executor executor) {
+        return resume(runner, executor, new Continuation(start));
+    }
+
+    private CompletableFuture<Void> resume(BlocksCodeRunner runner, Executor executor, Continuation continuation) {
+        run(runner, continuation, Long.MAX_VALUE, true);
+        if (continuation.pc == HALT) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return requestInput(runner, continuation.pc).thenComposeAsync(resumePc -> {
+            continuation.pc = resumePc;
+            return resumePc == HALT
+                    ? CompletableFuture.completedFuture(null)
+                    : resume(runner, executor, continuation);
+        }, executor);
+    }
+
+    Continuation start() {
+        return new Continuation(start);
+    }
+
+    boolean isInput(int pc) {
+        return pc != HALT && opcodes[pc] == BlockType.INPUT;
+    }
+
+    void runSlice(BlocksCodeRunner runner, Continuation continuation, int quantum) {
+        run(runner, continuation, quantum, true);
+    }
+
+    CompletableFuture<Integer> requestInput(BlocksCodeRunner runner, int pc) {
+        return runner.requestInput(inputs[pc]).thenApply(received -> received ? next[pc] : HALT);
+    }
+
+    private void run(BlocksCodeRunner runner, Continuation continuation, long budget, boolean suspendOnInput) {
+        Frame frame = runner.getFrame();
+        int pc = continuation.pc;
+        long remaining = budget;
+
+        loop:
+        while (pc != HALT && remaining > 0) {
+            switch (opcodes[pc]) {
+                case ASSIGN -> {
+                    if (updates[pc]) {
+                        frame.update(slots[pc], expressions[pc]);
+                    } else {
+                        frame.assign(slots[pc], expressions[pc]);
+                    }
+                    pc = next[pc];
+                }
+                case PRINT -> {
+                    runner.print(expressions[pc].evaluateString(frame));
+                    pc = next[pc];
+                }
+                case INPUT -> {
+                    if (suspendOnInput) {
+                        break loop;
+                    }
+                    pc = runner.readInput(inputs[pc]) ? next[pc] : HALT;
+                }
+                case CONDITION, WHILE -> pc = expressions[pc].evaluateBoolean(frame) ? next[pc] : branch[pc];
+                case END, END_CONDITION -> pc = next[pc];
+            }
+            remaining--;
+        }
+
+        continuation.pc = pc;
+        continuation.steps += budget - remaining;
+    }
+}
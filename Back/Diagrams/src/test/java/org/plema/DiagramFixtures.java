@@ -0,0 +1,41 @@
+package org.plema;
+
+import org.plema.models.AbstractBlock;
+import org.plema.models.Diagram;
+import org.plema.models.DiagramParser;
+import org.plema.models.DiagramSource;
+import org.plema.models.DiagramUpload;
+import org.plema.visitor.Visitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public final class DiagramFixtures {
+
+    private DiagramFixtures() {
+    }
+
+    public static Diagram parse(String json) {
+        return upload(json).diagram();
+    }
+
+    public static DiagramUpload upload(String json) {
+        return DiagramParser.parse(stream(json));
+    }
+
+    public static DiagramSource source(String json) {
+        return DiagramParser.read(stream(json));
+    }
+
+    public static void runThread(AbstractBlock entry, Visitor<AbstractBlock> runner) {
+        AbstractBlock block = entry;
+        while (block != null) {
+            block = block.doVisitor(runner);
+        }
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
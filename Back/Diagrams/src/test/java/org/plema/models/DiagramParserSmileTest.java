@@ -0,0 +1,52 @@
+package org.plema.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.source;
+
+class DiagramParserSmileTest {
+    private static final String DIAGRAM = """
+            {"variables": [{"name": "X", "type": "int"}, {"name": "D", "type": "double"}],
+             "threads": [
+               [{"id": 1, "type": "while", "expression": "X < 3", "body": 2, "next": 4},
+                {"id": 2, "type": "assign", "expression": "X = X + 1", "next": 3},
+                {"id": 3, "type": "condition", "expression": "X > 1", "trueBranch": 5, "falseBranch": 6},
+                {"id": 5, "type": "assign", "expression": "D = D + 0.5", "next": 6},
+                {"id": 6, "type": "end_condition", "next": 1},
+                {"id": 4, "type": "print", "expression": "\\"done \\" + D", "next": null}],
+               [{"id": 1, "type": "input", "variable": "D", "next": null}]
+             ],
+             "inputs": ["1.5", 2]}
+            """;
+
+    @Test
+    void smileAndJsonProduceTheSameDiagram() throws IOException {
+        JsonNode tree = new ObjectMapper().readTree(DIAGRAM);
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(tree);
+
+        DiagramSource fromJson = source(DIAGRAM);
+        DiagramSource fromSmile = DiagramParser.readSmile(new ByteArrayInputStream(smile));
+
+        assertEquals(fromJson.threads(), fromSmile.threads());
+        assertEquals(fromJson.fields(), fromSmile.fields());
+        assertEquals(fromJson.digest(), fromSmile.digest());
+        assertEquals(DiagramWriter.toJson(fromJson.build().diagram(), fromJson.fields()),
+                DiagramWriter.toJson(fromSmile.build().diagram(), fromSmile.fields()));
+    }
+
+    @Test
+    void rejectsMalformedSmile() {
+        byte[] truncated = {':', ')', '\n', 0x04, (byte) 0xfa};
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> DiagramParser.parseSmile(new ByteArrayInputStream(truncated)));
+        assertTrue(e.getMessage().startsWith("Malformed Smile"), e.getMessage());
+    }
+}
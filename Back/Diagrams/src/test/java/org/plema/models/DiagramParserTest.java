@@ -0,0 +1,98 @@
+package org.plema.models;
+
+import org.junit.jupiter.api.Test;
+import org.plema.DataType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.source;
+import static org.plema.DiagramFixtures.upload;
+
+class DiagramParserTest {
+    private static final String DIAGRAM = """
+            {"variables": [{"name": "X", "type": "int"}, {"name": "S", "type": "string"}],
+             "threads": [[
+               {"id": 1, "type": "input", "variable": "X", "next": 2},
+               {"id": 2, "type": "print", "expression": "X", "next": null}
+             ]],
+             "inputs": ["3"], "clientSocketId": "abc"}
+            """;
+
+    @Test
+    void readsVariablesThreadsAndExtraFields() {
+        DiagramUpload upload = upload(DIAGRAM);
+
+        Diagram diagram = upload.diagram();
+        assertEquals(List.of("X", "S"), diagram.variables().stream().map(Variable::getName).toList());
+        assertEquals(DataType.STRING, diagram.variables().get(1).getType());
+        assertEquals(1, diagram.variables().get(1).getSlot());
+        assertEquals(2, diagram.threads().get(0).size());
+        assertEquals(1, diagram.entries().get(0).getId());
+        assertEquals(List.of("3"), upload.fields().get("inputs"));
+        assertEquals("abc", upload.fields().get("clientSocketId"));
+    }
+
+    @Test
+    void acceptsThreadsBeforeVariables() {
+        DiagramUpload upload = upload("""
+                {"threads": [[{"id": 1, "type": "assign", "expression": "X = 2", "next": null}]],
+                 "variables": [{"name": "X", "type": "int"}]}
+                """);
+
+        AssignBlock block = (AssignBlock) upload.diagram().entries().get(0);
+        assertEquals("X", block.getTarget().getName());
+    }
+
+    @Test
+    void digestsOnlyTheFieldsABlockUses() {
+        DiagramSource plain = source("""
+                {"variables": [], "threads": [[{"id": 1, "type": "end_condition", "next": null}]]}
+                """);
+        DiagramSource noisy = source("""
+                {"variables": [], "threads": [[{"id": 1, "type": "end", "next": null, "body": 7,
+                  "expression": "ignored", "x": 1}]], "clientSocketId": "abc"}
+                """);
+
+        assertEquals(plain.digest(), noisy.digest());
+        assertEquals(plain.digest(), DiagramDigest.of(plain.build().diagram()));
+    }
+
+    @Test
+    void rejectsMalformedDiagrams() {
+        assertRejected("[]", "Diagram must be an object");
+        assertRejected("{\"threads\": []}", "Field variables is required");
+        assertRejected("{\"variables\": []}", "Field threads is required");
+        assertRejected("{\"variables\": [{\"name\": \"X\", \"type\": \"long\"}], \"threads\": []}",
+                "Unknown variable type: long");
+        assertRejected("{\"variables\": [], \"threads\": [[{\"id\": \"one\"}]]}", "Field id must be a number");
+        assertRejected("{\"variables\": [], \"threads\": [[{\"id\": 1, \"type\": \"jump\"}]]}",
+                "Unknown block type: jump");
+        assertRejected("{\"variables\": [], \"threads\": [[{\"id\": 2, \"type\": \"end\"}]]}",
+                "Thread has no start block 1");
+        assertRejected("{\"variables\": [", "Malformed JSON");
+    }
+
+    @Test
+    void limitsExpressionLength() {
+        String expression = "1" + " + 1".repeat(2_500);
+        assertRejected("{\"variables\": [], \"threads\": [[{\"id\": 1, \"type\": \"print\", \"expression\": \""
+                + expression + "\"}]]}", "Expression is longer than 10000 characters");
+    }
+
+    @Test
+    void limitsBlockCount() {
+        StringBuilder json = new StringBuilder("{\"variables\": [], \"threads\": [[");
+        for (int i = 1; i <= 100_001; i++) {
+            json.append(i == 1 ? "" : ",").append("{\"id\":").append(i).append(",\"type\":\"end\"}");
+        }
+        json.append("]]}");
+
+        assertRejected(json.toString(), "Diagram has more than 100000 blocks");
+    }
+
+    private static void assertRejected(String json, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> upload(json));
+        assertTrue(e.getMessage().startsWith(message), e.getMessage());
+    }
+}
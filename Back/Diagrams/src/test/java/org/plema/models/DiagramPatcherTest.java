@@ -0,0 +1,117 @@
+package org.plema.models;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.plema.services.BatchMessageSender;
+import org.plema.visitor.runner.BlocksCodeRunner;
+import org.plema.visitor.runner.Frame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+import static org.plema.DiagramFixtures.runThread;
+
+class DiagramPatcherTest {
+    private static final String DIAGRAM = """
+            {"variables": [{"name": "A", "type": "int"}, {"name": "Z", "type": "int"}, {"name": "B", "type": "int"}],
+             "threads": [
+               [{"id": 1, "type": "assign", "expression": "B = 5", "next": 2},
+                {"id": 2, "type": "assign", "expression": "A = B + 1", "next": 3},
+                {"id": 3, "type": "print", "expression": "Value: A", "next": null}],
+               [{"id": 1, "type": "print", "expression": "\\"constant\\"", "next": null}]
+             ]}
+            """;
+
+    @Test
+    void remapsBlocksWhenVariableSlotsShift() {
+        Diagram diagram = parse(DIAGRAM);
+        assertEquals(List.of("Value: 6", "\"constant\""), run(diagram));
+
+        Diagram patched = apply(diagram, "[{\"op\": \"removeVariable\", \"name\": \"Z\"}]");
+
+        assertEquals(List.of("A", "B"), patched.variables().stream().map(Variable::getName).toList());
+        assertEquals(1, patched.variables().get(1).getSlot());
+        assertEquals(List.of("Value: 6", "\"constant\""), run(patched));
+    }
+
+    @Test
+    void recompilesBlocksThatMentionAnAddedVariable() {
+        Diagram diagram = parse(DIAGRAM);
+
+        Diagram patched = apply(diagram, """
+                [{"op": "addVariable", "name": "C", "type": "int"},
+                 {"op": "updateBlock", "thread": 1,
+                  "block": {"id": 1, "type": "assign", "expression": "C = 7", "next": 2}},
+                 {"op": "addBlock", "thread": 1,
+                  "block": {"id": 2, "type": "print", "expression": "C is C", "next": null}}]
+                """);
+
+        assertEquals(List.of("Value: 6", "7 is 7"), run(patched));
+        assertEquals(3, patched.variables().get(3).getSlot());
+    }
+
+    @Test
+    void reusesThreadsThePatchDoesNotTouch() {
+        Diagram diagram = parse(DIAGRAM);
+
+        Diagram patched = apply(diagram, """
+                [{"op": "updateBlock", "thread": 1,
+                  "block": {"id": 1, "type": "print", "expression": "\\"changed\\"", "next": null}}]
+                """);
+
+        assertSame(diagram.threads().get(0), patched.threads().get(0));
+        assertSame(diagram.entries().get(0), patched.entries().get(0));
+        assertNotSame(diagram.threads().get(1), patched.threads().get(1));
+        assertEquals(List.of("Value: 6", "\"changed\""), run(patched));
+        assertEquals(List.of("Value: 6", "\"constant\""), run(diagram));
+    }
+
+    @Test
+    void rejectsInvalidOperationsWithoutTouchingTheDiagram() {
+        Diagram diagram = parse(DIAGRAM);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(diagram, "[{\"op\": \"removeVariable\", \"name\": \"Missing\"}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(diagram, "[{\"op\": \"addVariable\", \"name\": \"A\", \"type\": \"int\"}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(diagram, "[{\"op\": \"removeBlock\", \"thread\": 0, \"id\": 99}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> apply(diagram, "[{\"op\": \"removeBlock\", \"thread\": 5, \"id\": 1}]"));
+        assertEquals(List.of("Value: 6", "\"constant\""), run(diagram));
+    }
+
+    @Test
+    void survivesAWriteAndParseRoundTrip() {
+        Diagram patched = apply(parse(DIAGRAM), "[{\"op\": \"removeVariable\", \"name\": \"Z\"}]");
+
+        Diagram reloaded = parse(DiagramWriter.toJson(patched, new JsonObject().getMap()));
+
+        assertEquals(run(patched), run(reloaded));
+    }
+
+    private static Diagram apply(Diagram diagram, String operations) {
+        List<PatchOperation> patchOperations = new ArrayList<>();
+        for (Object operation : new JsonArray(operations)) {
+            patchOperations.add(PatchOperation.fromJson((JsonObject) operation));
+        }
+        return DiagramPatcher.apply(diagram, patchOperations);
+    }
+
+    private static List<String> run(Diagram diagram) {
+        return runEntries(diagram, diagram.entries());
+    }
+
+    private static List<String> runEntries(Diagram diagram, List<AbstractBlock> entries) {
+        BatchMessageSender sender = new BatchMessageSender(List.of());
+        Frame frame = Frame.create(diagram.variables(), entries.size());
+        for (AbstractBlock entry : entries) {
+            BlocksCodeRunner runner = new BlocksCodeRunner(frame, sender, "test");
+            runThread(entry, runner);
+        }
+        return sender.getOutput();
+    }
+}
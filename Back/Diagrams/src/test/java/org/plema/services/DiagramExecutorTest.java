@@ -0,0 +1,46 @@
+package org.plema.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagramExecutorTest {
+
+    @Test
+    void admitsMoreSuspendedRunsThanPlatformThreads() {
+        DiagramExecutor executor = new DiagramExecutor(100, 4);
+        List<CompletableFuture<Void>> inputs = new ArrayList<>();
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+
+        for (int i = 0; i < 40; i++) {
+            CompletableFuture<Void> input = new CompletableFuture<>();
+            inputs.add(input);
+            List<Supplier<CompletableFuture<Void>>> run = List.of(() -> input);
+            runs.add(executor.runAllAsync(run));
+        }
+
+        assertTrue(runs.stream().noneMatch(CompletableFuture::isDone));
+        inputs.forEach(input -> input.complete(null));
+        runs.forEach(CompletableFuture::join);
+    }
+
+    @Test
+    void rejectsRunsBeyondTheThreadLimit() {
+        DiagramExecutor executor = new DiagramExecutor(3, 1);
+        CompletableFuture<Void> input = new CompletableFuture<>();
+        List<Supplier<CompletableFuture<Void>>> run = List.of(() -> input, () -> input, () -> input);
+        CompletableFuture<Void> admitted = executor.runAllAsync(run);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.runAll(List.of(() -> { })));
+
+        input.complete(null);
+        admitted.join();
+        executor.runAll(List.of(() -> { })).join();
+    }
+}
@@ -0,0 +1,65 @@
+package org.plema.services;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.Diagram;
+import org.plema.visitor.runner.BlocksCodeRunner;
+import org.plema.visitor.runner.Frame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+import static org.plema.DiagramFixtures.runThread;
+
+class JavaRunServiceTest {
+    private static final String DIAGRAM = """
+            {"variables": [{"name": "A", "type": "int"}, {"name": "B", "type": "int"}],
+             "threads": [[
+               {"id": 1, "type": "input", "variable": "A", "next": 2},
+               {"id": 2, "type": "input", "variable": "B", "next": 3},
+               {"id": 3, "type": "print", "expression": "A * B", "next": null}
+             ]]}
+            """;
+
+    private final JavaRunService javaRunService = new JavaRunService();
+
+    @Test
+    void promptsLikeTheInterpreter() {
+        Diagram diagram = parse(DIAGRAM);
+        PromptRecorder java = new PromptRecorder(List.of("6", "7"));
+        PromptRecorder interpreted = new PromptRecorder(List.of("6", "7"));
+
+        javaRunService.execute(diagram, java, "test");
+        runThread(diagram.entries().get(0),
+                new BlocksCodeRunner(Frame.create(diagram.variables(), 1), interpreted, "test"));
+
+        assertEquals(List.of("A:", "B:"), java.prompts);
+        assertEquals(interpreted.prompts, java.prompts);
+        assertEquals(List.of("42"), java.getOutput());
+    }
+
+    @Test
+    void stopsQuietlyWhenInputRunsOut() {
+        PromptRecorder sender = new PromptRecorder(List.of("6"));
+
+        javaRunService.execute(parse(DIAGRAM), sender, "test");
+
+        assertEquals(List.of("A:", "B:"), sender.prompts);
+        assertEquals(List.of(), sender.getOutput());
+    }
+
+    private static class PromptRecorder extends BatchMessageSender {
+        private final List<String> prompts = new ArrayList<>();
+
+        PromptRecorder(List<String> inputs) {
+            super(inputs);
+        }
+
+        @Override
+        public synchronized String sendAndWaitResult(String sessionId, String type, String message) {
+            prompts.add(message);
+            return super.sendAndWaitResult(sessionId, type, message);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.plema.services;
+
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.plema.ExecutionMode;
+import org.plema.RunOptions;
+import org.plema.dtos.BatchRunResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+
+class RunDiagramServiceTest {
+    private static final String ENDLESS_LOOP = """
+            {"variables": [{"name": "X", "type": "int"}],
+             "threads": [[
+               {"id": 1, "type": "while", "expression": "X >= 0", "body": 2, "next": 4},
+               {"id": 2, "type": "assign", "expression": "X = X + 1", "next": 3},
+               {"id": 3, "type": "end", "next": 1},
+               {"id": 4, "type": "print", "expression": "X", "next": null}
+             ]]}
+            """;
+    private static final String TWO_INPUTS = """
+            {"variables": [{"name": "A", "type": "int"}, {"name": "B", "type": "int"}],
+             "threads": [[
+               {"id": 1, "type": "input", "variable": "A", "next": 2},
+               {"id": 2, "type": "input", "variable": "B", "next": 3},
+               {"id": 3, "type": "print", "expression": "A", "next": null}
+             ]]}
+            """;
+
+    private static Vertx vertx;
+    private static RunDiagramService service;
+
+    @BeforeAll
+    static void startVertx() {
+        vertx = Vertx.vertx();
+        service = new RunDiagramService(vertx);
+    }
+
+    @AfterAll
+    static void closeVertx() {
+        vertx.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExecutionMode.class, names = "JAVA", mode = EnumSource.Mode.EXCLUDE)
+    void stopsEndlessBatchRunsAtTheStepLimit(ExecutionMode mode) {
+        BatchRunResponse response = runBatch(ENDLESS_LOOP, List.of(), mode);
+
+        assertEquals("step_limit", response.status());
+        assertEquals(List.of(), response.output());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExecutionMode.class, names = "JAVA", mode = EnumSource.Mode.EXCLUDE)
+    void reportsExhaustedBatchInput(ExecutionMode mode) {
+        BatchRunResponse response = runBatch(TWO_INPUTS, List.of("1"), mode);
+
+        assertEquals("input_exhausted", response.status());
+        assertEquals(1, response.variables().get("A"));
+    }
+
+    private static BatchRunResponse runBatch(String json, List<String> inputs, ExecutionMode mode) {
+        return service.runBatch(parse(json), inputs, new RunOptions(mode, 1L, false))
+                .toCompletionStage().toCompletableFuture().join();
+    }
+}
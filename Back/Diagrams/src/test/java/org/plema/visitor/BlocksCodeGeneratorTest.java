@@ -0,0 +1,159 @@
+package org.plema.visitor;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.AbstractBlock;
+import org.plema.models.Diagram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+
+class BlocksCodeGeneratorTest {
+
+    @Test
+    void nestsAConditionInsideATrueBranch() {
+        String code = generate("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "condition", "expression": "X > 0", "trueBranch": 2, "falseBranch": 7},
+                   {"id": 2, "type": "condition", "expression": "X > 5", "trueBranch": 3, "falseBranch": 4},
+                   {"id": 3, "type": "print", "expression": "\\"big\\"", "next": 4},
+                   {"id": 4, "type": "end_condition", "next": 5},
+                   {"id": 7, "type": "print", "expression": "\\"neg\\"", "next": 5},
+                   {"id": 5, "type": "end_condition", "next": 6},
+                   {"id": 6, "type": "print", "expression": "\\"done\\"", "next": null}
+                 ]]}
+                """);
+
+        assertEquals("""
+                if (X > 0) {
+                    if (X > 5) {
+                        System.out.println("big");
+                    } else {
+                    }
+                } else {
+                    System.out.println("neg");
+                }
+                System.out.println("done");
+                """, code);
+    }
+
+    @Test
+    void closesAConditionWithAnEmptyFalseBranch() {
+        String code = generate("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "condition", "expression": "X > 0", "trueBranch": 2, "falseBranch": 3},
+                   {"id": 2, "type": "print", "expression": "\\"pos\\"", "next": 3},
+                   {"id": 3, "type": "end_condition", "next": 4},
+                   {"id": 4, "type": "print", "expression": "\\"done\\"", "next": null}
+                 ]]}
+                """);
+
+        assertEquals("""
+                if (X > 0) {
+                    System.out.println("pos");
+                } else {
+                }
+                System.out.println("done");
+                """, code);
+    }
+
+    @Test
+    void nestsAConditionInsideAWhileLoop() {
+        String code = generate("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "while", "expression": "X < 10", "body": 2, "next": 7},
+                   {"id": 2, "type": "condition", "expression": "X / 2 * 2 == X", "trueBranch": 3, "falseBranch": 4},
+                   {"id": 3, "type": "print", "expression": "X", "next": 4},
+                   {"id": 4, "type": "end_condition", "next": 5},
+                   {"id": 5, "type": "assign", "expression": "X = X + 1", "next": 1},
+                   {"id": 7, "type": "end", "next": 8},
+                   {"id": 8, "type": "print", "expression": "\\"done\\"", "next": null}
+                 ]]}
+                """);
+
+        assertEquals("""
+                while (X < 10) {
+                    if (X / 2 * 2 == X) {
+                        System.out.println(X);
+                    } else {
+                    }
+                    X = X + 1;
+                }
+                System.out.println("done");
+                """, code);
+    }
+
+    @Test
+    void wrapsALoopWithNoPathToTheExitInAnEndlessLoop() {
+        String code = generate("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "assign", "expression": "X = 0", "next": 2},
+                   {"id": 2, "type": "while", "expression": "X >= 0", "body": 3, "next": 7},
+                   {"id": 3, "type": "condition", "expression": "X > 5", "trueBranch": 4, "falseBranch": 5},
+                   {"id": 4, "type": "assign", "expression": "X = 0", "next": 5},
+                   {"id": 5, "type": "end_condition", "next": 6},
+                   {"id": 6, "type": "assign", "expression": "X = X + 1", "next": 2},
+                   {"id": 7, "type": "end", "next": 2}
+                 ]]}
+                """);
+
+        assertEquals("""
+                X = 0;
+                while (true) {
+                    while (X >= 0) {
+                        if (X > 5) {
+                            X = 0;
+                        } else {
+                        }
+                        X = X + 1;
+                    }
+                }
+                """, code);
+    }
+
+    @Test
+    void rejectsACycleBackIntoANestedBranch() {
+        Diagram diagram = parse("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "condition", "expression": "X > 0", "trueBranch": 2, "falseBranch": 3},
+                   {"id": 2, "type": "assign", "expression": "X = X + 1", "next": 2},
+                   {"id": 3, "type": "end_condition", "next": null}
+                 ]]}
+                """);
+
+        assertThrows(IllegalArgumentException.class, () -> generate(diagram));
+    }
+
+    private static String generate(String json) {
+        return generate(parse(json));
+    }
+
+    /**
+     * Generates the first thread and strips the indent of the thread body, so the nesting reads from column 0.
+     */
+    private static String generate(Diagram diagram) {
+        Map<Integer, AbstractBlock> blockMap = new HashMap<>();
+        for (AbstractBlock block : diagram.threads().get(0)) {
+            blockMap.put(block.getId(), block);
+        }
+
+        StringBuilder code = new StringBuilder();
+        BlocksCodeGenerator generator = new BlocksCodeGenerator(code, blockMap);
+        Integer blockId = 1;
+        while (blockMap.containsKey(blockId)) {
+            blockId = blockMap.get(blockId).doVisitor(generator);
+        }
+
+        return code.toString().lines()
+                .map(line -> line.substring(16))
+                .collect(Collectors.joining("\n", "", "\n"));
+    }
+}
@@ -0,0 +1,66 @@
+package org.plema.visitor;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.AbstractBlock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+
+class ControlFlowGraphTest {
+
+    @Test
+    void findsTheMergeOfNestedConditionsAndLoops() {
+        ControlFlowGraph graph = graph("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "while", "expression": "X < 10", "body": 2, "next": 7},
+                   {"id": 2, "type": "condition", "expression": "X > 0", "trueBranch": 3, "falseBranch": 5},
+                   {"id": 3, "type": "condition", "expression": "X > 5", "trueBranch": 4, "falseBranch": 6},
+                   {"id": 4, "type": "print", "expression": "X", "next": 6},
+                   {"id": 6, "type": "end_condition", "next": 5},
+                   {"id": 5, "type": "end_condition", "next": 8},
+                   {"id": 8, "type": "assign", "expression": "X = X + 1", "next": 1},
+                   {"id": 7, "type": "end", "next": 9},
+                   {"id": 9, "type": "print", "expression": "X", "next": null}
+                 ]]}
+                """);
+
+        assertEquals(7, graph.immediatePostDominator(1));
+        assertEquals(5, graph.immediatePostDominator(2));
+        assertEquals(6, graph.immediatePostDominator(3));
+        assertEquals(6, graph.immediatePostDominator(4));
+        assertEquals(1, graph.immediatePostDominator(8));
+        assertEquals(9, graph.immediatePostDominator(7));
+        assertNull(graph.immediatePostDominator(9));
+        assertTrue(graph.reachesExit(9));
+    }
+
+    @Test
+    void leavesBlocksWithNoPathToTheExitWithoutPostDominator() {
+        ControlFlowGraph graph = graph("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "assign", "expression": "X = 0", "next": 2},
+                   {"id": 2, "type": "while", "expression": "X >= 0", "body": 3, "next": 4},
+                   {"id": 3, "type": "assign", "expression": "X = X + 1", "next": 2},
+                   {"id": 4, "type": "end", "next": 2}
+                 ]]}
+                """);
+
+        for (int id = 1; id <= 4; id++) {
+            assertNull(graph.immediatePostDominator(id));
+            assertFalse(graph.reachesExit(id));
+        }
+    }
+
+    private static ControlFlowGraph graph(String json) {
+        Map<Integer, AbstractBlock> blockMap = new LinkedHashMap<>();
+        for (AbstractBlock block : parse(json).threads().get(0)) {
+            blockMap.put(block.getId(), block);
+        }
+        return new ControlFlowGraph(blockMap);
+    }
+}
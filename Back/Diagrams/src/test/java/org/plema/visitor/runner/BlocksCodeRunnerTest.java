@@ -0,0 +1,66 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.AbstractBlock;
+import org.plema.models.Diagram;
+import org.plema.models.InputBlock;
+import org.plema.vertx.WebSocketMessageSender;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+
+class BlocksCodeRunnerTest {
+    private static final String DIAGRAM = """
+            {"variables": [{"name": "N", "type": "int"}],
+             "threads": [[
+               {"id": 1, "type": "input", "variable": "N", "next": 2},
+               {"id": 2, "type": "print", "expression": "N", "next": null}
+             ]]}
+            """;
+
+    @Test
+    void suspendsOnInputUntilTheAnswerArrives() {
+        Diagram diagram = parse(DIAGRAM);
+        PendingInput sender = new PendingInput();
+        BlocksCodeRunner runner = new BlocksCodeRunner(Frame.create(diagram.variables(), 1), sender, "test");
+
+        CompletableFuture<AbstractBlock> next = runner.doInputAsync((InputBlock) diagram.entries().get(0));
+
+        assertFalse(next.isDone());
+        sender.answer.complete("42");
+        assertEquals(2, next.join().getId());
+        assertEquals(42, runner.getFrame().getInt(0));
+    }
+
+    @Test
+    void stopsWhenInputFails() {
+        Diagram diagram = parse(DIAGRAM);
+        PendingInput sender = new PendingInput();
+        BlocksCodeRunner runner = new BlocksCodeRunner(Frame.create(diagram.variables(), 1), sender, "test");
+
+        CompletableFuture<AbstractBlock> next = runner.doInputAsync((InputBlock) diagram.entries().get(0));
+        sender.answer.completeExceptionally(new IllegalStateException("disconnected"));
+
+        assertNull(next.join());
+    }
+
+    private static class PendingInput implements WebSocketMessageSender {
+        private final CompletableFuture<String> answer = new CompletableFuture<>();
+
+        @Override
+        public void sendMessage(String sessionId, String message) {
+        }
+
+        @Override
+        public String sendAndWaitResult(String sessionId, String type, String message) {
+            throw new AssertionError("Input must not block");
+        }
+
+        @Override
+        public CompletableFuture<String> requestResult(String sessionId, String type, String message) {
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.AbstractBlock;
+import org.plema.models.Diagram;
+import org.plema.services.BatchMessageSender;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+import static org.plema.DiagramFixtures.runThread;
+
+class ClosureTreeBuilderTest {
+    private static final String INPUT_LOOP = """
+            {"variables": [{"name": "N", "type": "int"}, {"name": "S", "type": "int"}],
+             "threads": [[
+               {"id": 1, "type": "while", "expression": "S < 100", "body": 2, "next": 5},
+               {"id": 2, "type": "input", "variable": "N", "next": 3},
+               {"id": 3, "type": "condition", "expression": "N > 0", "trueBranch": 4, "falseBranch": 6},
+               {"id": 4, "type": "assign", "expression": "S = S + N", "next": 6},
+               {"id": 6, "type": "end_condition", "next": 1},
+               {"id": 5, "type": "print", "expression": "\\"done\\"", "next": null}
+             ]]}
+            """;
+
+    @Test
+    void buildsStructuredLoopsWithTheInterpreterSemantics() {
+        Diagram diagram = parse("""
+                {"variables": [{"name": "I", "type": "int"}, {"name": "S", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "while", "expression": "I < 10", "body": 2, "next": 6},
+                   {"id": 2, "type": "condition", "expression": "I / 2 * 2 == I", "trueBranch": 3, "falseBranch": 4},
+                   {"id": 3, "type": "assign", "expression": "S = S + I", "next": 4},
+                   {"id": 4, "type": "end_condition", "next": 5},
+                   {"id": 5, "type": "assign", "expression": "I = I + 1", "next": 1},
+                   {"id": 6, "type": "print", "expression": "S", "next": null}
+                 ]]}
+                """);
+
+        BatchMessageSender interpreted = new BatchMessageSender(List.of());
+        BlocksCodeRunner interpreter = runner(diagram, interpreted);
+        runThread(diagram.entries().get(0), interpreter);
+
+        BatchMessageSender closures = new BatchMessageSender(List.of());
+        BlocksCodeRunner closureRunner = runner(diagram, closures);
+        builder(diagram).tryBuild(1).orElseThrow().execute(closureRunner);
+
+        assertEquals(List.of("20"), closures.getOutput());
+        assertEquals(interpreted.getOutput(), closures.getOutput());
+    }
+
+    @Test
+    void leavesInputToTheInterpreter() {
+        assertTrue(builder(parse(INPUT_LOOP)).tryBuild(1).isEmpty());
+    }
+
+    @Test
+    void declinesUnstructuredThreads() {
+        Diagram diagram = parse("""
+                {"variables": [{"name": "X", "type": "int"}],
+                 "threads": [[
+                   {"id": 1, "type": "while", "expression": "X < 3", "body": 2, "next": 4},
+                   {"id": 2, "type": "condition", "expression": "X > 1", "trueBranch": 4, "falseBranch": 3},
+                   {"id": 3, "type": "assign", "expression": "X = X + 1", "next": 1},
+                   {"id": 4, "type": "print", "expression": "X", "next": null}
+                 ]]}
+                """);
+
+        assertTrue(builder(diagram).tryBuild(1).isEmpty());
+    }
+
+    private static BlocksCodeRunner runner(Diagram diagram, BatchMessageSender sender) {
+        return new BlocksCodeRunner(Frame.create(diagram.variables(), 1), sender, "test");
+    }
+
+    private static ClosureTreeBuilder builder(Diagram diagram) {
+        Map<Integer, AbstractBlock> blockMap = new HashMap<>();
+        for (AbstractBlock block : diagram.threads().get(0)) {
+            blockMap.put(block.getId(), block);
+        }
+        return new ClosureTreeBuilder(blockMap);
+    }
+}
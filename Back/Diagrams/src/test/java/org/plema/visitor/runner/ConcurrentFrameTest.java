@@ -0,0 +1,82 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.DataType;
+import org.plema.Value;
+import org.plema.models.Variable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentFrameTest {
+    private static final List<Variable> VARIABLES = List.of(new Variable("X", DataType.INT, 0));
+
+    @Test
+    void computesTheUpdateFromTheValueItReplaces() {
+        Frame frame = Frame.create(VARIABLES, 2);
+        frame.update(0, intExpression(view -> {
+            // Another thread moves X away and back while this update is being evaluated.
+            frame.setInt(0, 5);
+            int seen = view.getInt(0);
+            frame.setInt(0, 0);
+            return seen + 1;
+        }));
+
+        assertEquals(1, frame.getInt(0));
+    }
+
+    @Test
+    void keepsEveryIncrementFromConcurrentThreads() {
+        Frame frame = Frame.create(VARIABLES, 4);
+        Expression increment = intExpression(view -> view.getInt(0) + 1);
+
+        CompletableFuture<?>[] threads = new CompletableFuture<?>[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = CompletableFuture.runAsync(() -> {
+                for (int step = 0; step < 10_000; step++) {
+                    frame.update(0, increment);
+                }
+            });
+        }
+        CompletableFuture.allOf(threads).join();
+
+        assertEquals(40_000, frame.getInt(0));
+    }
+
+    private static Expression intExpression(ToIntFunction<Frame> body) {
+        return new Expression() {
+            @Override
+            public DataType getType() {
+                return DataType.INT;
+            }
+
+            @Override
+            public int evaluateInt(Frame frame) {
+                return body.applyAsInt(frame);
+            }
+
+            @Override
+            public double evaluateDouble(Frame frame) {
+                return evaluateInt(frame);
+            }
+
+            @Override
+            public boolean evaluateBoolean(Frame frame) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String evaluateString(Frame frame) {
+                return String.valueOf(evaluateInt(frame));
+            }
+
+            @Override
+            public Value evaluate(Frame frame) {
+                return new Value(evaluateInt(frame), DataType.INT);
+            }
+        };
+    }
+}
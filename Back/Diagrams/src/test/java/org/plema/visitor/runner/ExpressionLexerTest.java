@@ -0,0 +1,68 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.visitor.runner.ExpressionLexer.TokenType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionLexerTest {
+
+    @Test
+    void readsNumbersIdentifiersAndStrings() {
+        ExpressionLexer lexer = new ExpressionLexer("12 3.5 1e3 count \"a b\"");
+
+        assertEquals(TokenType.INTEGER, lexer.next());
+        assertEquals(12, lexer.intValue());
+        assertEquals(TokenType.DOUBLE, lexer.next());
+        assertEquals(3.5, lexer.doubleValue());
+        assertEquals(TokenType.DOUBLE, lexer.next());
+        assertEquals(1000.0, lexer.doubleValue());
+        assertEquals(TokenType.IDENTIFIER, lexer.next());
+        assertEquals("count", lexer.text());
+        assertEquals(TokenType.STRING, lexer.next());
+        assertEquals("a b", lexer.stringValue());
+        assertEquals(TokenType.END, lexer.next());
+    }
+
+    @Test
+    void readsTwoCharacterOperators() {
+        ExpressionLexer lexer = new ExpressionLexer("<= >= == != && || < ! -");
+        Operator[] expected = {
+                Operator.LESS_OR_EQUALS, Operator.GREATER_OR_EQUALS, Operator.EQUALS, Operator.NOT_EQUALS,
+                Operator.AND, Operator.OR, Operator.LESS, Operator.NOT, Operator.MINUS
+        };
+
+        for (Operator operator : expected) {
+            assertEquals(TokenType.OPERATOR, lexer.next());
+            assertEquals(operator, lexer.operator());
+        }
+        assertEquals(TokenType.END, lexer.next());
+    }
+
+    @Test
+    void fallsBackToDoubleWhenIntegerOverflows() {
+        ExpressionLexer lexer = new ExpressionLexer("3000000000");
+
+        assertEquals(TokenType.DOUBLE, lexer.next());
+        assertEquals(3_000_000_000.0, lexer.doubleValue());
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpressionLexer("12abc").next());
+        assertThrows(IllegalArgumentException.class, () -> new ExpressionLexer("\"open").next());
+        ExpressionLexer assignment = new ExpressionLexer("a = b");
+        assignment.next();
+        assertThrows(IllegalArgumentException.class, assignment::next);
+    }
+
+    @Test
+    void matchesSignedNumbers() {
+        ExpressionLexer negative = new ExpressionLexer("-42");
+        assertTrue(negative.matchesNumber());
+        assertEquals(-42, negative.intValue());
+
+        assertFalse(new ExpressionLexer("42x").matchesNumber());
+        assertFalse(new ExpressionLexer("-").matchesNumber());
+    }
+}
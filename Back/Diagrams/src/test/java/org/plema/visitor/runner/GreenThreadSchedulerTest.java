@@ -0,0 +1,92 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.AbstractBlock;
+import org.plema.models.Diagram;
+import org.plema.services.BatchMessageSender;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+
+class GreenThreadSchedulerTest {
+    private static final String RACE = """
+            {"variables": [{"name": "X", "type": "int"}, {"name": "A", "type": "int"}, {"name": "B", "type": "int"}],
+             "threads": [
+               [
+                 {"id": 1, "type": "while", "expression": "A < 20", "body": 2, "next": null},
+                 {"id": 2, "type": "assign", "expression": "X = X * 2 + 1", "next": 3},
+                 {"id": 3, "type": "print", "expression": "a X", "next": 4},
+                 {"id": 4, "type": "assign", "expression": "A = A + 1", "next": 1}
+               ],
+               [
+                 {"id": 1, "type": "input", "variable": "B", "next": 2},
+                 {"id": 2, "type": "while", "expression": "B < 20", "body": 3, "next": null},
+                 {"id": 3, "type": "assign", "expression": "X = X - 3", "next": 4},
+                 {"id": 4, "type": "print", "expression": "b X", "next": 5},
+                 {"id": 5, "type": "assign", "expression": "B = B + 1", "next": 2}
+               ]
+             ]}
+            """;
+
+    @Test
+    void replaysTheSameInterleavingForTheSameSeed() {
+        List<String> first = run(42L);
+
+        assertEquals(first, run(42L));
+        assertEquals(38, first.size());
+        assertTrue(indexOfFirst(first, "b ") < indexOfLast(first, "a "), "threads should interleave: " + first);
+    }
+
+    @Test
+    void stopsAtTheStepLimit() {
+        Diagram diagram = parse(RACE);
+        BatchMessageSender sender = new BatchMessageSender(List.of("2"));
+        GreenThreadScheduler scheduler = scheduler(diagram, sender, 1L, 10);
+
+        scheduler.execute().join();
+
+        assertTrue(scheduler.isStepLimitReached());
+        assertEquals(10, scheduler.getSteps());
+    }
+
+    private static List<String> run(long seed) {
+        Diagram diagram = parse(RACE);
+        BatchMessageSender sender = new BatchMessageSender(List.of("2"));
+        GreenThreadScheduler scheduler = scheduler(diagram, sender, seed, Long.MAX_VALUE);
+
+        scheduler.execute().join();
+
+        assertFalse(scheduler.isStepLimitReached());
+        return sender.getOutput();
+    }
+
+    private static int indexOfFirst(List<String> output, String prefix) {
+        for (int i = 0; i < output.size(); i++) {
+            if (output.get(i).startsWith(prefix)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfLast(List<String> output, String prefix) {
+        for (int i = output.size() - 1; i >= 0; i--) {
+            if (output.get(i).startsWith(prefix)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static GreenThreadScheduler scheduler(Diagram diagram, BatchMessageSender sender, long seed,
+                                                  long maxSteps) {
+        Frame frame = Frame.create(diagram.variables(), diagram.threads().size());
+        GreenThreadScheduler scheduler = new GreenThreadScheduler(1, seed, maxSteps, Runnable::run);
+        for (AbstractBlock entry : diagram.entries()) {
+            scheduler.addThread(new SwitchInterpreter(entry), new BlocksCodeRunner(frame, sender, "test"));
+        }
+        return scheduler;
+    }
+}
@@ -0,0 +1,108 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.DataType;
+import org.plema.models.Variable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpnHandlerTest {
+    private final Variable x = new Variable("X", DataType.INT, 0);
+    private final Variable d = new Variable("D", DataType.DOUBLE, 1);
+    private final Variable s = new Variable("S", DataType.STRING, 2);
+    private final Map<String, Variable> variables = Map.of("X", x, "D", d, "S", s);
+    private final Frame frame = new Frame(List.of(x, d, s));
+
+    @Test
+    void appliesPrecedenceAndAssociativity() {
+        frame.setInt(0, 2);
+
+        assertEquals(14, compile("2 + 3 * 4").evaluateInt(frame));
+        assertEquals(20, compile("(2 + 3) * 4").evaluateInt(frame));
+        assertEquals(1, compile("10 - 4 - 5").evaluateInt(frame));
+        assertEquals(2, compile("16 / 4 / 2").evaluateInt(frame));
+        assertTrue(compile("X + 1 > 2 && X * 2 == 4 || false").evaluateBoolean(frame));
+    }
+
+    @Test
+    void appliesUnaryOperators() {
+        frame.setInt(0, 5);
+
+        assertEquals(-5, compile("-X").evaluateInt(frame));
+        assertEquals(5, compile("--X").evaluateInt(frame));
+        assertEquals(-7, compile("-X - 2").evaluateInt(frame));
+        assertFalse(compile("!(X > 1)").evaluateBoolean(frame));
+        assertTrue(compile("!!true").evaluateBoolean(frame));
+        assertThrows(IllegalArgumentException.class, () -> compile("-S"));
+    }
+
+    @Test
+    void promotesMixedArithmeticToDouble() {
+        frame.setDouble(1, 1.5);
+
+        Expression expression = compile("D * 2");
+        assertEquals(DataType.DOUBLE, expression.getType());
+        assertEquals(3.0, expression.evaluateDouble(frame));
+    }
+
+    @Test
+    void concatenatesStrings() {
+        frame.setString(2, "n=");
+        frame.setInt(0, 3);
+
+        assertEquals("n=3", compile("S + X").evaluateString(frame));
+    }
+
+    @Test
+    void foldsConstantSubexpressions() {
+        assertInstanceOf(ConstantExpression.class, compile("2 * (3 + 4)"));
+        assertInstanceOf(ConstantExpression.class, compile("-(1 + 1)"));
+        assertInstanceOf(ConstantExpression.class, compile("\"a\" + \"b\" == \"ab\""));
+        assertFalse(compile("X + 1") instanceof ConstantExpression);
+    }
+
+    @Test
+    void leavesFailingConstantsForRuntime() {
+        Expression expression = compile("1 / 0");
+
+        assertFalse(expression instanceof ConstantExpression);
+        assertThrows(ArithmeticException.class, () -> expression.evaluateInt(frame));
+    }
+
+    @Test
+    void shortCircuitsLogicalOperators() {
+        frame.setInt(0, 0);
+
+        assertFalse(compile("X > 0 && 1 / X > 0").evaluateBoolean(frame));
+        assertTrue(compile("X == 0 || 1 / X > 0").evaluateBoolean(frame));
+        assertInstanceOf(ConstantExpression.class, compile("false && X > 0"));
+        assertInstanceOf(ConstantExpression.class, compile("true || X > 0"));
+        assertFalse(compile("true && X > 0") instanceof ConstantExpression);
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> compile(""));
+        assertThrows(IllegalArgumentException.class, () -> compile("(1 + 2"));
+        assertThrows(IllegalArgumentException.class, () -> compile("1 + 2)"));
+        assertThrows(IllegalArgumentException.class, () -> compile("1 +"));
+        assertThrows(IllegalArgumentException.class, () -> compile("Y + 1"));
+        assertThrows(IllegalArgumentException.class, () -> RpnHandler.compileCondition("X + 1", variables));
+    }
+
+    @Test
+    void findsReferencesOutsideStringLiterals() {
+        assertTrue(RpnHandler.references("X_1 + X * 2", x));
+        assertFalse(RpnHandler.references("X_1 + \"X\"", x));
+        assertTrue(RpnHandler.references("(X + ", x));
+        assertEquals(Set.of("X_1", "D", "2"), RpnHandler.identifiers("X_1 + D * 2 + \"S\""));
+    }
+
+    private Expression compile(String expression) {
+        return RpnHandler.compile(expression, variables);
+    }
+}
@@ -0,0 +1,78 @@
+package org.plema.visitor.runner;
+
+import org.junit.jupiter.api.Test;
+import org.plema.models.Diagram;
+import org.plema.models.Variable;
+import org.plema.services.BatchMessageSender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.plema.DiagramFixtures.parse;
+import static org.plema.DiagramFixtures.runThread;
+
+class SwitchInterpreterTest {
+    private static final String NESTED_LOOP = """
+            {"variables": [{"name": "N", "type": "int"}, {"name": "I", "type": "int"},
+                           {"name": "S", "type": "int"}, {"name": "R", "type": "double"}],
+             "threads": [[
+               {"id": 1, "type": "input", "variable": "N", "next": 2},
+               {"id": 2, "type": "while", "expression": "I < N", "body": 3, "next": 12},
+               {"id": 3, "type": "condition", "expression": "I / 2 * 2 == I", "trueBranch": 4, "falseBranch": 5},
+               {"id": 4, "type": "condition", "expression": "I > 2", "trueBranch": 6, "falseBranch": 7},
+               {"id": 6, "type": "assign", "expression": "S = S + I", "next": 7},
+               {"id": 7, "type": "end_condition", "next": 8},
+               {"id": 5, "type": "assign", "expression": "S = S - 1", "next": 8},
+               {"id": 8, "type": "end_condition", "next": 9},
+               {"id": 9, "type": "print", "expression": "I S", "next": 10},
+               {"id": 10, "type": "assign", "expression": "I = I + 1", "next": 11},
+               {"id": 11, "type": "end", "next": 2},
+               {"id": 12, "type": "input", "variable": "R", "next": 13},
+               {"id": 13, "type": "assign", "expression": "R = R * S", "next": 14},
+               {"id": 14, "type": "print", "expression": "R", "next": null}
+             ]]}
+            """;
+
+    @Test
+    void matchesTheVisitorInterpreter() {
+        assertParity(NESTED_LOOP, List.of("7", "1.5"));
+    }
+
+    @Test
+    void stopsAtTheSameInputWhenInputRunsOut() {
+        assertParity(NESTED_LOOP, List.of("5"));
+    }
+
+    private static void assertParity(String json, List<String> inputs) {
+        Diagram diagram = parse(json);
+
+        BatchMessageSender interpretedSender = new BatchMessageSender(inputs);
+        BlocksCodeRunner interpreted = new BlocksCodeRunner(Frame.create(diagram.variables(), 1),
+                interpretedSender, "test");
+        runThread(diagram.entries().get(0), interpreted);
+
+        BatchMessageSender switchSender = new BatchMessageSender(inputs);
+        BlocksCodeRunner switched = new BlocksCodeRunner(Frame.create(diagram.variables(), 1), switchSender, "test");
+        new SwitchInterpreter(diagram.entries().get(0)).execute(switched);
+
+        BatchMessageSender suspendingSender = new BatchMessageSender(inputs);
+        BlocksCodeRunner suspending = new BlocksCodeRunner(Frame.create(diagram.variables(), 1),
+                suspendingSender, "test");
+        new SwitchInterpreter(diagram.entries().get(0)).executeAsync(suspending, Runnable::run).join();
+
+        assertFalse(interpretedSender.getOutput().isEmpty());
+        assertEquals(interpretedSender.getOutput(), switchSender.getOutput());
+        assertEquals(interpretedSender.getOutput(), suspendingSender.getOutput());
+        assertEquals(values(diagram, interpreted.getFrame()), values(diagram, switched.getFrame()));
+        assertEquals(values(diagram, interpreted.getFrame()), values(diagram, suspending.getFrame()));
+    }
+
+    private static List<Object> values(Diagram diagram, Frame frame) {
+        List<Object> values = new ArrayList<>();
+        for (Variable variable : diagram.variables()) {
+            values.add(frame.get(variable.getSlot()).value());
+        }
+        return values;
+    }
+}
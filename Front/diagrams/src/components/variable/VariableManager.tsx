@@ -7,6 +7,12 @@ const VariableManager: React.FC = () => {
   return (
     <div className="w-64 bg-gray-100 p-4 h-full">
       <h2 className="text-lg font-bold mb-4">Variables</h2>
+      <p className="text-xs text-gray-600 mb-4">
+        Variables are shared by all threads. Each assignment is atomic, and an
+        assignment that reads its own variable, such as X = X + 1, never loses
+        another thread's update. Steps spread over several blocks, such as
+        reading two variables as a pair, can interleave with other threads.
+      </p>
       <VariableSelector/>
       <VariablesList />
     </div>